@@ -4,12 +4,15 @@ package org.jmock.example.timedcache;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.integration.junit3.JUnit3ErrorTranslator;
+import org.jmock.lib.concurrent.DeterministicScheduler;
+import org.jmock.lib.concurrent.VirtualClock;
 
 
 public class TimedCacheTests extends TestCase {
@@ -87,6 +90,28 @@ public class TimedCacheTests extends TestCase {
         assertSame("should be reloaded object", NEW_VALUE, actualValueFromSecondLookup);
     }
 
+    public void testCanReadTheTimeFromAVirtualClockMovedByADeterministicScheduler() {
+        final VirtualClock virtualClock = new VirtualClock(loadTime.getTime());
+        DeterministicScheduler scheduler = new DeterministicScheduler(virtualClock);
+        
+        context.checking(new Expectations() {{
+            allowing (clock).time(); will(virtualClock.returnCurrentDate());
+            allowing (reloadPolicy).shouldReload(loadTime, fetchTime); will(returnValue(true));
+            
+            oneOf (loader).load(KEY); will(returnValue(VALUE));
+            oneOf (loader).load(KEY); will(returnValue(NEW_VALUE));
+        }});
+        
+        Object actualValueFromFirstLookup = cache.lookup(KEY);
+        scheduler.tick(fetchTime.getTime() - loadTime.getTime(), TimeUnit.MILLISECONDS);
+        Object actualValueFromSecondLookup = cache.lookup(KEY);
+        
+        context.assertIsSatisfied();
+        
+        assertSame("should be loaded object", VALUE, actualValueFromFirstLookup);
+        assertSame("should be reloaded object", NEW_VALUE, actualValueFromSecondLookup);
+    }
+    
     private Date time(int i) {
         Calendar calendar = Calendar.getInstance();
         calendar.clear();
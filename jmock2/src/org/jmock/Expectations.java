@@ -124,6 +124,7 @@ public class Expectations implements ExpectationBuilder,
     private void checkLastExpectationWasFullySpecified() {
         if (currentBuilder != null) {
             currentBuilder.checkWasFullySpecified();
+            currentBuilder.endCapture();
         }
     }
     
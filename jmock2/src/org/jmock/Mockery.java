@@ -1,8 +1,6 @@
 package org.jmock;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import org.hamcrest.Description;
@@ -12,10 +10,13 @@ import org.jmock.api.ExpectationError;
 import org.jmock.api.ExpectationErrorTranslator;
 import org.jmock.api.Imposteriser;
 import org.jmock.api.Invocation;
+import org.jmock.api.InvocationHistory;
 import org.jmock.api.Invokable;
 import org.jmock.api.MockObjectNamingScheme;
+import org.jmock.api.ParameterRetention;
 import org.jmock.api.ThreadingPolicy;
 import org.jmock.internal.CaptureControl;
+import org.jmock.internal.CompleteInvocationHistory;
 import org.jmock.internal.ExpectationBuilder;
 import org.jmock.internal.ExpectationCapture;
 import org.jmock.internal.InvocationDispatcher;
@@ -26,6 +27,7 @@ import org.jmock.internal.ObjectMethodExpectationBouncer;
 import org.jmock.internal.ProxiedObjectIdentity;
 import org.jmock.internal.ReturnDefaultValueAction;
 import org.jmock.internal.SingleThreadedPolicy;
+import org.jmock.internal.StrongParameterRetention;
 import org.jmock.lib.CamelCaseNamingScheme;
 import org.jmock.lib.IdentityExpectationErrorTranslator;
 import org.jmock.lib.JavaReflectionImposteriser;
@@ -53,9 +55,11 @@ public class Mockery implements SelfDescribing {
     private ReturnDefaultValueAction defaultAction = new ReturnDefaultValueAction(imposteriser);
     
     private InvocationDispatcher dispatcher = new InvocationDispatcher();
-    private Error firstError = null;
+    private volatile Error firstError = null;
     
-    private List<Invocation> actualInvocations = new ArrayList<Invocation>();
+    private InvocationHistory invocationHistory = new CompleteInvocationHistory();
+    private InvocationHistory actualInvocations = invocationHistory;
+    private ParameterRetention parameterRetention = StrongParameterRetention.INSTANCE;
     
     
     /* 
@@ -119,10 +123,48 @@ public class Mockery implements SelfDescribing {
      *  The default policy throws an exception if the Mockery is called from different
      *  threads.
      *  
+     *  The policy also controls how threads access the invocation history.
+     *  
      *  @see Synchroniser
+     *  @see org.jmock.lib.concurrent.ConcurrentPolicy
      */
     public void setThreadingPolicy(ThreadingPolicy threadingPolicy) {
         this.threadingPolicy = threadingPolicy;
+        this.actualInvocations = threadingPolicy.synchroniseAccessTo(invocationHistory);
+    }
+    
+    /**
+     * Changes how the Mockery records the invocations that it dispatches,
+     * which are reported when a test fails.
+     * 
+     * By default, every invocation is recorded.  A test that performs a very 
+     * large number of invocations can plug in a history that records only the
+     * most recent invocations or only counts them, so that it runs in constant
+     * memory.
+     * 
+     * @see org.jmock.lib.BoundedInvocationHistory
+     * @see org.jmock.lib.MethodInvocationCountingHistory
+     * @see org.jmock.lib.concurrent.PerThreadInvocationHistory
+     */
+    public void setInvocationHistory(InvocationHistory invocationHistory) {
+        this.invocationHistory = invocationHistory;
+        this.actualInvocations = threadingPolicy.synchroniseAccessTo(invocationHistory);
+    }
+    
+    /**
+     * Changes how much of the parameters of invocations the Mockery keeps
+     * in its invocation history.
+     * 
+     * By default, the history keeps the parameters themselves alive.  A test 
+     * that passes large parameters to mock objects can plug in a retention 
+     * policy that keeps weak references to the parameters or only a
+     * description of the invocation taken when it was recorded.
+     * 
+     * @see org.jmock.lib.WeakParameterRetention
+     * @see org.jmock.lib.SnapshotParameterRetention
+     */
+    public void setParameterRetention(ParameterRetention parameterRetention) {
+        this.parameterRetention = parameterRetention;
     }
     
     /*
@@ -232,13 +274,11 @@ public class Mockery implements SelfDescribing {
     
     private void describeHistory(Description description) {
         description.appendText("\nwhat happened before this:");
-        
-        if (actualInvocations.isEmpty()) {
-            description.appendText(" nothing!");
-        }
-        else {
-            description.appendList("\n  ", "\n  ", "\n", actualInvocations);
-        }
+        description.appendDescriptionOf(actualInvocations);
+    }
+    
+    private void record(Invocation invocation) {
+        actualInvocations.record(parameterRetention.retain(invocation));
     }
 
     private Object dispatch(Invocation invocation) throws Throwable {
@@ -248,20 +288,29 @@ public class Mockery implements SelfDescribing {
         
         try {
             Object result = dispatcher.dispatch(invocation);
-            actualInvocations.add(invocation);
+            record(invocation);
             return result;
         }
         catch (ExpectationError e) {
-            firstError = expectationErrorTranslator.translate(mismatchDescribing(e));
-            firstError.setStackTrace(e.getStackTrace());
-            throw firstError;
+            Error error = expectationErrorTranslator.translate(mismatchDescribing(e));
+            error.setStackTrace(e.getStackTrace());
+            throw firstErrorOr(error);
         }
         catch (Throwable t) {
-            actualInvocations.add(invocation);
+            record(invocation);
             throw t;
         }
     }
     
+    // Threads that invoke mock objects concurrently can fail at the same 
+    // time, but all of them report the same error.
+    private synchronized Error firstErrorOr(Error error) {
+        if (firstError == null) {
+            firstError = error;
+        }
+        return firstError;
+    }
+    
     private ExpectationError mismatchDescribing(final ExpectationError e) {
         ExpectationError filledIn = new ExpectationError(e.getMessage(), new SelfDescribing() {
             public void describeTo(Description description) {
@@ -272,10 +321,15 @@ public class Mockery implements SelfDescribing {
         return filledIn;
     }
 
-    private class MockObject implements Invokable, CaptureControl {
+    private class MockObject implements Invokable, CaptureControl, ExpectationCapture {
         private Class<?> mockedType;
         private String name;
         
+        // Created on first use and then reused for every expectation,
+        // forwarding the invocations it captures to the active capture.
+        private Object capturingImposter = null;
+        private ExpectationCapture activeCapture = null;
+        
         public MockObject(Class<?> mockedType, String name) {
             this.name = name;
             this.mockedType = mockedType;
@@ -291,10 +345,33 @@ public class Mockery implements SelfDescribing {
         }
 
         public Object captureExpectationTo(ExpectationCapture capture) {
+            if (activeCapture != null && activeCapture.isCapturing()) {
+                // An expectation of this mock is being defined while defining 
+                // another, for example in the arguments of the invocation
+                // that specifies it, so the shared imposter is in use.
+                return newCapturingImposter(capture);
+            }
+            
+            activeCapture = capture;
+            if (capturingImposter == null) {
+                capturingImposter = newCapturingImposter(this);
+            }
+            return capturingImposter;
+        }
+        
+        private Object newCapturingImposter(ExpectationCapture capture) {
             return imposteriser.imposterise(
                 new ObjectMethodExpectationBouncer(new InvocationToExpectationTranslator(capture, defaultAction)), 
                 mockedType);
         }
+        
+        public void createExpectationFrom(Invocation invocation) {
+            activeCapture.createExpectationFrom(invocation);
+        }
+        
+        public boolean isCapturing() {
+            return activeCapture.isCapturing();
+        }
     }
 
 }
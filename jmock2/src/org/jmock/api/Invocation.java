@@ -4,12 +4,14 @@ package org.jmock.api;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 import org.hamcrest.Description;
-import org.hamcrest.SelfDescribing;
 import org.hamcrest.StringDescription;
 
 
@@ -18,12 +20,15 @@ import org.hamcrest.StringDescription;
  * 
  * @since 1.0
  */
-public class Invocation implements SelfDescribing {
+public class Invocation implements RecordedInvocation {
     public static final Object[] NO_PARAMETERS = null;
+    
+    private static final Object[] EMPTY_PARAMETERS = new Object[0];
 
     private final Object invokedObject;
     private final Method invokedMethod;
     private final Object[] parameterValues;
+    private List<Object> parameterList = null;
 
     // A kludge but there doesn't seem to be a way to find this out through the reflection API.
     private static final Map<Class<?>, Class<?>> BOX_TYPES = new HashMap<Class<?>, Class<?>>() {{
@@ -39,11 +44,26 @@ public class Invocation implements SelfDescribing {
 
     
     public Invocation(Object invoked, Method method, Object... parameterValues) {
+        this(invoked, method, parameterValues, true);
+    }
+    
+    private Invocation(Object invoked, Method method, Object[] parameterValues, boolean copyParameterValues) {
         this.invokedObject = invoked;
         this.invokedMethod = method;
         this.parameterValues = (parameterValues == NO_PARAMETERS) 
-            ? new Object[0]
-            : parameterValues.clone();
+            ? EMPTY_PARAMETERS
+            : (copyParameterValues ? parameterValues.clone() : parameterValues);
+    }
+    
+    /**
+     * Creates an Invocation that takes ownership of the <var>parameterValues</var>
+     * array instead of copying it.  The caller must not modify the array afterwards.
+     * 
+     * This is intended for {@link Imposteriser}s, which are passed a new array of 
+     * arguments for every call to a proxy.
+     */
+    public static Invocation adopting(Object invoked, Method method, Object[] parameterValues) {
+        return new Invocation(invoked, method, parameterValues, false);
     }
     
     @Override
@@ -92,13 +112,27 @@ public class Invocation implements SelfDescribing {
         return parameterValues[i];
     }
 
+    /**
+     * Returns a copy of the parameter values.  To read the parameter values
+     * without copying them, use {@link #getParameter(int)} or {@link #getParameters()}.
+     */
     public Object[] getParametersAsArray() {
         return parameterValues.clone();
     }
+    
+    /**
+     * Returns a read-only view of the parameter values, which does not copy them.
+     */
+    public List<Object> getParameters() {
+        if (parameterList == null) {
+            parameterList = new ParameterList(parameterValues);
+        }
+        return parameterList;
+    }
 
     public Object applyTo(Object target) throws Throwable {
         try {
-            return invokedMethod.invoke(target, getParametersAsArray());
+            return invokedMethod.invoke(target, parameterValues);
         }
         catch (InvocationTargetException ex) {
             throw ex.getTargetException();
@@ -152,4 +186,22 @@ public class Invocation implements SelfDescribing {
             "tried to return a " + valueType.getName() +
             " from a method that can only return a " + returnType.getName());
     }
+    
+    private static class ParameterList extends AbstractList<Object> implements RandomAccess {
+        private final Object[] parameterValues;
+        
+        public ParameterList(Object[] parameterValues) {
+            this.parameterValues = parameterValues;
+        }
+        
+        @Override
+        public Object get(int index) {
+            return parameterValues[index];
+        }
+        
+        @Override
+        public int size() {
+            return parameterValues.length;
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package org.jmock.api;
+
+import org.hamcrest.SelfDescribing;
+
+/**
+ * Records the invocations that have been dispatched by a 
+ * {@link org.jmock.Mockery} so that they can be reported if the test fails.
+ * 
+ * The history describes itself after the text "what happened before this:"
+ * in failure messages.
+ */
+public interface InvocationHistory extends SelfDescribing {
+    /**
+     * Records an invocation that was dispatched to an expectation, in the
+     * form chosen by the Mockery's {@link ParameterRetention}.
+     */
+    void record(RecordedInvocation invocation);
+}
@@ -0,0 +1,13 @@
+package org.jmock.api;
+
+/**
+ * Decides how much of an invocation's parameters is kept when the
+ * invocation is recorded in the {@link InvocationHistory} of a
+ * {@link org.jmock.Mockery}.
+ */
+public interface ParameterRetention {
+    /**
+     * Returns the form of the <var>invocation</var> to be recorded.
+     */
+    RecordedInvocation retain(Invocation invocation);
+}
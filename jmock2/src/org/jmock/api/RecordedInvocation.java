@@ -0,0 +1,17 @@
+package org.jmock.api;
+
+import java.lang.reflect.Method;
+
+import org.hamcrest.SelfDescribing;
+
+/**
+ * An invocation as it is kept in an {@link InvocationHistory}: enough to 
+ * identify what was invoked and to describe it in failure messages.
+ * 
+ * @see ParameterRetention
+ */
+public interface RecordedInvocation extends SelfDescribing {
+    Object getInvokedObject();
+    
+    Method getInvokedMethod();
+}
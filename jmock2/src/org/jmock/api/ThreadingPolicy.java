@@ -2,4 +2,14 @@ package org.jmock.api;
 
 public interface ThreadingPolicy {
     Invokable synchroniseAccessTo(Invokable mockObject);
+    
+    /**
+     * Returns a history through which the Mockery records and describes 
+     * invocations, which is safe to use from the threads that this policy
+     * lets invoke mock objects.
+     * 
+     * @param history
+     *     The history set on the Mockery.
+     */
+    InvocationHistory synchroniseAccessTo(InvocationHistory history);
 }
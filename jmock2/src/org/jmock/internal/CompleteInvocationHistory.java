@@ -0,0 +1,30 @@
+package org.jmock.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hamcrest.Description;
+import org.jmock.api.InvocationHistory;
+import org.jmock.api.RecordedInvocation;
+
+/**
+ * Records every invocation.
+ * 
+ * This is the history used by default.
+ */
+public class CompleteInvocationHistory implements InvocationHistory {
+    private final List<RecordedInvocation> invocations = new ArrayList<RecordedInvocation>();
+    
+    public void record(RecordedInvocation invocation) {
+        invocations.add(invocation);
+    }
+    
+    public void describeTo(Description description) {
+        if (invocations.isEmpty()) {
+            description.appendText(" nothing!");
+        }
+        else {
+            description.appendList("\n  ", "\n  ", "\n", invocations);
+        }
+    }
+}
@@ -5,4 +5,10 @@ import org.jmock.api.Invocation;
 
 public interface ExpectationCapture {
     void createExpectationFrom(Invocation invocation);
+    
+    /**
+     * Is the capture still waiting for the invocation that specifies its
+     * expectation?
+     */
+    boolean isCapturing();
 }
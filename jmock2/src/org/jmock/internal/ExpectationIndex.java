@@ -0,0 +1,291 @@
+package org.jmock.internal;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jmock.api.Expectation;
+import org.jmock.api.Invocation;
+
+/**
+ * Finds the first expectation, in the order they were added, that matches an
+ * invocation without testing every expectation.
+ *
+ * Expectations that are known to apply to a single mock object, and possibly
+ * to a single method of that object, are bucketed by those keys.  All other
+ * expectations are kept in a list of wildcards that are considered for every
+ * invocation.  The candidate lists are merged by the position at which each
+ * expectation was added, so the expectation that is invoked is the same one
+ * that a linear search would have found.
+ *
+ * Within a method's bucket, expectations whose parameters were specified as
+ * literal values are further indexed by a hash of those values, computed
+ * the same way for the expected values and the actual parameters.  Only
+ * values of immutable types -- strings, boxed primitives, enums and classes
+ * -- are hashed, because a mutable value, such as a collection or an array,
+ * can change after the expectation is declared.  Expectations with other
+ * values are always considered and invocations with other parameters
+ * consider every expectation of the method.
+ *
+ * Several threads can search an index at the same time, as long as no
+ * expectations are added to it while they do.
+ */
+public class ExpectationIndex {
+    private final Map<Object, ReceiverBucket> bucketsByReceiver = new IdentityHashMap<Object, ReceiverBucket>();
+    private final List<Entry> wildcards = new ArrayList<Entry>();
+    private int size = 0;
+
+    public void add(Expectation expectation) {
+        Entry entry = new Entry(size++, expectation);
+
+        Object receiver = receiverOf(expectation);
+        if (receiver == null) {
+            wildcards.add(entry);
+            return;
+        }
+
+        ReceiverBucket receiverBucket = receiverBucketFor(receiver);
+        Method method = methodOf(expectation);
+        if (method == null) {
+            receiverBucket.anyMethod.add(entry);
+            return;
+        }
+
+        MethodBucket methodBucket = receiverBucket.methodBucketFor(method);
+        Object[] parameters = parametersOf(expectation);
+        if (parameters != null && areHashable(parameters)) {
+            methodBucket.addLiteral(hashOf(parameters), entry);
+        }
+        else {
+            methodBucket.addNonLiteral(entry);
+        }
+    }
+
+    public Expectation firstMatch(Invocation invocation) {
+        ReceiverBucket receiverBucket = bucketsByReceiver.get(invocation.getInvokedObject());
+        if (receiverBucket == null) {
+            return firstMatchIn(invocation, wildcards, noEntries(), noEntries(), noEntries());
+        }
+
+        MethodBucket methodBucket = receiverBucket.byMethod.get(invocation.getInvokedMethod());
+        if (methodBucket == null) {
+            return firstMatchIn(invocation, receiverBucket.anyMethod, wildcards, noEntries(), noEntries());
+        }
+
+        if (!methodBucket.hasLiterals() || !areHashable(invocation)) {
+            return firstMatchIn(invocation, methodBucket.all, receiverBucket.anyMethod, wildcards, noEntries());
+        }
+
+        return firstMatchIn(invocation,
+                            methodBucket.literalEntriesFor(hashOf(invocation)),
+                            methodBucket.nonLiteral,
+                            receiverBucket.anyMethod,
+                            wildcards);
+    }
+
+    private Expectation firstMatchIn(Invocation invocation, List<Entry> a, List<Entry> b, List<Entry> c, List<Entry> d) {
+        int i = 0, j = 0, k = 0, l = 0;
+
+        while (i < a.size() || j < b.size() || k < c.size() || l < d.size()) {
+            int pa = positionAt(a, i), pb = positionAt(b, j), pc = positionAt(c, k), pd = positionAt(d, l);
+
+            Entry next;
+            if (pa < pb && pa < pc && pa < pd) {
+                next = a.get(i++);
+            }
+            else if (pb < pc && pb < pd) {
+                next = b.get(j++);
+            }
+            else if (pc < pd) {
+                next = c.get(k++);
+            }
+            else {
+                next = d.get(l++);
+            }
+
+            if (next.expectation.matches(invocation)) {
+                return next.expectation;
+            }
+        }
+
+        return null;
+    }
+
+    private static int positionAt(List<Entry> entries, int i) {
+        return i < entries.size() ? entries.get(i).position : Integer.MAX_VALUE;
+    }
+
+    private ReceiverBucket receiverBucketFor(Object receiver) {
+        ReceiverBucket bucket = bucketsByReceiver.get(receiver);
+        if (bucket == null) {
+            bucket = new ReceiverBucket();
+            bucketsByReceiver.put(receiver, bucket);
+        }
+        return bucket;
+    }
+
+    private static Object receiverOf(Expectation expectation) {
+        if (expectation instanceof InvocationExpectation) {
+            return ((InvocationExpectation)expectation).expectedReceiver();
+        }
+        return null;
+    }
+
+    private static Method methodOf(Expectation expectation) {
+        return ((InvocationExpectation)expectation).expectedMethod();
+    }
+
+    private static Object[] parametersOf(Expectation expectation) {
+        return ((InvocationExpectation)expectation).expectedParameters();
+    }
+
+    private static boolean areHashable(Invocation invocation) {
+        for (int i = 0; i < invocation.getParameterCount(); i++) {
+            if (!isHashable(invocation.getParameter(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean areHashable(Object[] values) {
+        for (Object value : values) {
+            if (!isHashable(value)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isHashable(Object value) {
+        return value == null
+            || value instanceof String
+            || value instanceof Boolean
+            || value instanceof Character
+            || value instanceof Byte
+            || value instanceof Short
+            || value instanceof Integer
+            || value instanceof Long
+            || value instanceof Float
+            || value instanceof Double
+            || value instanceof Enum<?>
+            || value instanceof Class<?>;
+    }
+
+    private static int hashOf(Invocation invocation) {
+        int hash = 1;
+        for (int i = 0; i < invocation.getParameterCount(); i++) {
+            hash = 31*hash + hashOf(invocation.getParameter(i));
+        }
+        return hash;
+    }
+
+    private static int hashOf(Object[] values) {
+        int hash = 1;
+        for (Object value : values) {
+            hash = 31*hash + hashOf(value);
+        }
+        return hash;
+    }
+
+    private static int hashOf(Object value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private static List<Entry> noEntries() {
+        return Collections.emptyList();
+    }
+
+    private static class ReceiverBucket {
+        public final Map<Method, MethodBucket> byMethod = new HashMap<Method, MethodBucket>();
+        public final List<Entry> anyMethod = new ArrayList<Entry>();
+
+        public MethodBucket methodBucketFor(Method method) {
+            MethodBucket bucket = byMethod.get(method);
+            if (bucket == null) {
+                bucket = new MethodBucket();
+                byMethod.put(method, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    // The literal entries are kept in an open table of slots, rather than a
+    // map keyed by boxed hash, so that looking them up does not allocate.
+    // Entries whose hashes share a slot are filtered out by matching.
+    private static class MethodBucket {
+        private static final int INITIAL_SLOT_COUNT = 8;
+        
+        public final List<Entry> all = new ArrayList<Entry>();
+        public final List<Entry> nonLiteral = new ArrayList<Entry>();
+        private final List<Entry> literals = new ArrayList<Entry>();
+        private List<Entry>[] literalSlots = null;
+
+        public boolean hasLiterals() {
+            return literalSlots != null;
+        }
+        
+        public void addLiteral(int parameterHash, Entry entry) {
+            entry.parameterHash = parameterHash;
+            all.add(entry);
+            literals.add(entry);
+            
+            if (literalSlots == null) {
+                literalSlots = newSlots(INITIAL_SLOT_COUNT);
+                addToSlot(entry);
+            }
+            else if (literals.size() > literalSlots.length) {
+                rehashLiterals(literalSlots.length*2);
+            }
+            else {
+                addToSlot(entry);
+            }
+        }
+
+        public void addNonLiteral(Entry entry) {
+            nonLiteral.add(entry);
+            all.add(entry);
+        }
+
+        public List<Entry> literalEntriesFor(int parameterHash) {
+            List<Entry> entries = literalSlots[slotOf(parameterHash, literalSlots.length)];
+            return entries == null ? noEntries() : entries;
+        }
+        
+        private void rehashLiterals(int slotCount) {
+            literalSlots = newSlots(slotCount);
+            for (Entry entry : literals) {
+                addToSlot(entry);
+            }
+        }
+        
+        private void addToSlot(Entry entry) {
+            int slot = slotOf(entry.parameterHash, literalSlots.length);
+            if (literalSlots[slot] == null) {
+                literalSlots[slot] = new ArrayList<Entry>();
+            }
+            literalSlots[slot].add(entry);
+        }
+        
+        private static int slotOf(int hash, int slotCount) {
+            int spread = hash ^ (hash >>> 16);
+            return spread & (slotCount - 1);
+        }
+        
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static List<Entry>[] newSlots(int slotCount) {
+            return new List[slotCount];
+        }
+    }
+
+    private static class Entry {
+        public final int position;
+        public final Expectation expectation;
+        public int parameterHash;
+
+        public Entry(int position, Expectation expectation) {
+            this.position = position;
+            this.expectation = expectation;
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package org.jmock.internal;
 
 import java.lang.reflect.Method;
-import java.util.Arrays;
 
 import org.jmock.api.Invocation;
 import org.jmock.api.Invokable;
 
 
 public abstract class FakeObjectMethods implements Invokable {
+    private static final ClassifiedMethod[] NO_CLASSIFIED_METHODS = {};
+    private static final int MAX_CLASSIFIED_METHODS = 8;
+    
     private final Invokable next;
+    
+    // The methods that might be Object methods that this has been invoked
+    // with, and what they turned out to be.  A proxy passes the same Method
+    // for every call of a method, so there are few of them.  The array is
+    // replaced rather than modified, so that it can be read without locking;
+    // an update lost to a race only means a method is classified again.
+    private volatile ClassifiedMethod[] classifiedMethods = NO_CLASSIFIED_METHODS;
 
     public FakeObjectMethods(Invokable next) {
         this.next = next;
@@ -20,17 +29,17 @@ public abstract class FakeObjectMethods implements Invokable {
     }
 
     public Object invoke(Invocation invocation) throws Throwable {
-        Method method = invocation.getInvokedMethod();
-        if (isMethod(method, int.class, "hashCode")) {
+        ObjectMethod objectMethod = objectMethodOf(invocation.getInvokedMethod());
+        if (objectMethod == ObjectMethod.HASH_CODE) {
             return fakeHashCode(invocation.getInvokedObject());
         }
-        else if (isMethod(method, String.class, "toString")) {
+        else if (objectMethod == ObjectMethod.TO_STRING) {
             return fakeToString(invocation.getInvokedObject());
         }
-        else if (isMethod(method, boolean.class, "equals", Object.class)) {
+        else if (objectMethod == ObjectMethod.EQUALS) {
             return fakeEquals(invocation.getInvokedObject(), invocation.getParameter(0));
         }
-        else if (isMethod(method, void.class, "finalize")) {
+        else if (objectMethod == ObjectMethod.FINALIZE) {
             fakeFinalize(invocation.getInvokedObject());
             return null;
         }
@@ -39,6 +48,32 @@ public abstract class FakeObjectMethods implements Invokable {
         }
     }
 
+    private ObjectMethod objectMethodOf(Method method) {
+        if (!ObjectMethod.mightBe(method)) {
+            return ObjectMethod.NONE;
+        }
+        
+        ClassifiedMethod[] known = classifiedMethods;
+        for (ClassifiedMethod classified : known) {
+            if (classified.method == method) {
+                return classified.objectMethod;
+            }
+        }
+        
+        ObjectMethod objectMethod = ObjectMethod.of(method);
+        if (known.length < MAX_CLASSIFIED_METHODS) {
+            classifiedMethods = extendedWith(known, new ClassifiedMethod(method, objectMethod));
+        }
+        return objectMethod;
+    }
+    
+    private static ClassifiedMethod[] extendedWith(ClassifiedMethod[] known, ClassifiedMethod classified) {
+        ClassifiedMethod[] extended = new ClassifiedMethod[known.length + 1];
+        System.arraycopy(known, 0, extended, 0, known.length);
+        extended[known.length] = classified;
+        return extended;
+    }
+    
     protected abstract int fakeHashCode(Object invokedObject);
 
     protected abstract String fakeToString(Object invokedObject);
@@ -46,11 +81,14 @@ public abstract class FakeObjectMethods implements Invokable {
     protected abstract boolean fakeEquals(Object invokedObject, Object other);
 
     protected abstract void fakeFinalize(Object invokedObject);
-
-    private boolean isMethod(Method method, Class<?> returnType, String name, Class<?>... parameterTypes) {
-        return method.getReturnType().equals(returnType)
-            && method.getName().equals(name)
-            && Arrays.equals(method.getParameterTypes(), parameterTypes);
+    
+    private static class ClassifiedMethod {
+        public final Method method;
+        public final ObjectMethod objectMethod;
+        
+        public ClassifiedMethod(Method method, ObjectMethod objectMethod) {
+            this.method = method;
+            this.objectMethod = objectMethod;
+        }
     }
-
 }
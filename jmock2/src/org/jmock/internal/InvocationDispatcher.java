@@ -3,6 +3,7 @@ package org.jmock.internal;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hamcrest.Description;
 import org.hamcrest.SelfDescribing;
@@ -10,9 +11,15 @@ import org.jmock.api.Expectation;
 import org.jmock.api.ExpectationError;
 import org.jmock.api.Invocation;
 
-public class InvocationDispatcher implements ExpectationCollector, SelfDescribing {
+public class InvocationDispatcher implements ExpectationCollector, SelfDescribing, SatisfactionListener {
 	private List<Expectation> expectations = new ArrayList<Expectation>();
+	private ExpectationIndex index = new ExpectationIndex();
 	private List<StateMachine> stateMachines = new ArrayList<StateMachine>();
+	
+	// InvocationExpectations report when they become satisfied, so only
+	// expectations of other types need to be checked by isSatisfied.
+	private List<Expectation> untrackedExpectations = new ArrayList<Expectation>();
+	private final AtomicInteger unsatisfiedTrackedExpectationCount = new AtomicInteger(0);
     
     public StateMachine newStateMachine(String name) {
         StateMachine stateMachine = new StateMachine(name);
@@ -22,6 +29,24 @@ public class InvocationDispatcher implements ExpectationCollector, SelfDescribin
     
 	public void add(Expectation expectation) {
 		expectations.add(expectation);
+		index.add(expectation);
+		track(expectation);
+	}
+	
+	private void track(Expectation expectation) {
+	    if (expectation instanceof InvocationExpectation) {
+	        if (!expectation.isSatisfied()) {
+	            unsatisfiedTrackedExpectationCount.incrementAndGet();
+	            ((InvocationExpectation)expectation).addSatisfactionListener(this);
+	        }
+	    }
+	    else {
+	        untrackedExpectations.add(expectation);
+	    }
+	}
+	
+	public void expectationSatisfied(InvocationExpectation expectation) {
+	    unsatisfiedTrackedExpectationCount.decrementAndGet();
 	}
 	
     public void describeTo(Description description) {
@@ -67,7 +92,10 @@ public class InvocationDispatcher implements ExpectationCollector, SelfDescribin
     
 
     public boolean isSatisfied() {
-		for (Expectation expectation : expectations) {
+        if (unsatisfiedTrackedExpectationCount.get() > 0) {
+            return false;
+        }
+		for (Expectation expectation : untrackedExpectations) {
 		    if (! expectation.isSatisfied()) {
                 return false;
             }
@@ -76,11 +104,19 @@ public class InvocationDispatcher implements ExpectationCollector, SelfDescribin
 	}
 	
 	public Object dispatch(Invocation invocation) throws Throwable {
-		for (Expectation expectation : expectations) {
-		    if (expectation.matches(invocation)) {
-		        return expectation.invoke(invocation);
-            }
-        }
+	    Expectation expectation;
+	    while ((expectation = index.firstMatch(invocation)) != null) {
+	        if (!(expectation instanceof InvocationExpectation)) {
+	            return expectation.invoke(invocation);
+	        }
+	        
+	        // Other threads may have used up the invocations the expectation 
+	        // allows since it matched, in which case it will not match again.
+	        InvocationExpectation invocationExpectation = (InvocationExpectation)expectation;
+	        if (invocationExpectation.countInvocationIfAllowed()) {
+	            return invocationExpectation.perform(invocation);
+	        }
+	    }
         
         throw new ExpectationError("unexpected invocation", invocation);
 	}
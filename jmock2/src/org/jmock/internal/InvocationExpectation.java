@@ -3,6 +3,7 @@ package org.jmock.internal;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
@@ -10,7 +11,9 @@ import org.hamcrest.core.IsAnything;
 import org.jmock.api.Action;
 import org.jmock.api.Expectation;
 import org.jmock.api.Invocation;
+import org.jmock.internal.matcher.AllParametersMatcher;
 import org.jmock.internal.matcher.MethodMatcher;
+import org.jmock.internal.matcher.MockObjectMatcher;
 import org.jmock.lib.action.VoidAction;
 
 /** 
@@ -24,14 +27,17 @@ public class InvocationExpectation implements Expectation {
     private Cardinality cardinality = Cardinality.ALLOWING;
 	private Matcher<?> objectMatcher = IsAnything.anything();
 	private Matcher<? super Method> methodMatcher = IsAnything.anything("<any method>");
+	private Object expectedReceiver = null;
+	private Method expectedMethod = null;
 	private boolean methodIsKnownToBeVoid = false;
 	private ParametersMatcher parametersMatcher = ANY_PARAMETERS;
     private Action action = new VoidAction();
     private boolean actionIsDefault = true;
     private List<OrderingConstraint> orderingConstraints = new ArrayList<OrderingConstraint>();
     private List<SideEffect> sideEffects = new ArrayList<SideEffect>();
+    private List<SatisfactionListener> satisfactionListeners = new ArrayList<SatisfactionListener>();
     
-	private int invocationCount = 0;
+	private final AtomicInteger invocationCount = new AtomicInteger(0);
 	
     public void setCardinality(Cardinality cardinality) {
         this.cardinality = cardinality;
@@ -39,16 +45,49 @@ public class InvocationExpectation implements Expectation {
 	
 	public void setObjectMatcher(Matcher<?> objectMatcher) {
 		this.objectMatcher = objectMatcher;
+		this.expectedReceiver = (objectMatcher instanceof MockObjectMatcher) 
+		    ? ((MockObjectMatcher)objectMatcher).getMockObject()
+		    : null;
 	}
 	
 	public void setMethod(Method method) {
 	    this.methodMatcher = new MethodMatcher(method);
+	    this.expectedMethod = method;
 	    this.methodIsKnownToBeVoid = method.getReturnType() == void.class;
 	}
 	
 	public void setMethodMatcher(Matcher<? super Method> matcher) {
 		this.methodMatcher = matcher;
 		this.methodIsKnownToBeVoid = false;
+		this.expectedMethod = null;
+	}
+	
+	/**
+	 * The only object this expectation can match, or <code>null</code> if it
+	 * can match invocations of more than one object.
+	 */
+	public Object expectedReceiver() {
+	    return expectedReceiver;
+	}
+	
+	/**
+	 * The only method this expectation can match, or <code>null</code> if it
+	 * can match invocations of more than one method.
+	 */
+	public Method expectedMethod() {
+	    return expectedMethod;
+	}
+	
+	/**
+	 * The values that the parameters of a matching invocation must be equal
+	 * to, or <code>null</code> if the parameters are constrained by other
+	 * matchers.
+	 */
+	public Object[] expectedParameters() {
+	    if (parametersMatcher instanceof AllParametersMatcher) {
+	        return ((AllParametersMatcher)parametersMatcher).getExpectedValues();
+	    }
+	    return null;
 	}
 	
 	public void setParametersMatcher(ParametersMatcher parametersMatcher) {
@@ -63,6 +102,15 @@ public class InvocationExpectation implements Expectation {
         sideEffects.add(sideEffect);
     }
     
+    /**
+     * Registers a <var>listener</var> to be told when an invocation makes
+     * this expectation satisfied.  The listener is not told if the 
+     * expectation is already satisfied.
+     */
+    public void addSatisfactionListener(SatisfactionListener listener) {
+        satisfactionListeners.add(listener);
+    }
+    
     public void setAction(Action action) {
         this.action = action;
         this.actionIsDefault = false;
@@ -95,12 +143,13 @@ public class InvocationExpectation implements Expectation {
     private void describeMethod(Description description) {
         cardinality.describeTo(description);
         description.appendText(", ");
-        if (invocationCount == 0) {
+        int count = invocationCount.get();
+        if (count == 0) {
             description.appendText("never invoked");
         }
         else {
             description.appendText("already invoked ");
-            description.appendText(Formatting.times(invocationCount));
+            description.appendText(Formatting.times(count));
         }
         description.appendText(": ");
         objectMatcher.describeTo(description);
@@ -130,18 +179,18 @@ public class InvocationExpectation implements Expectation {
     }
 
     public boolean isSatisfied() {
-        return cardinality.isSatisfied(invocationCount);
+        return cardinality.isSatisfied(invocationCount.get());
     }
     
     public boolean allowsMoreInvocations() {
-        return cardinality.allowsMoreInvocations(invocationCount);
+        return cardinality.allowsMoreInvocations(invocationCount.get());
     }
     
     public boolean matches(Invocation invocation) {
 		return allowsMoreInvocations()
 			&& objectMatcher.matches(invocation.getInvokedObject())
 			&& methodMatcher.matches(invocation.getInvokedMethod())
-			&& parametersMatcher.matches(invocation.getParametersAsArray())
+			&& parametersMatcher.matchesParametersOf(invocation)
             && isInCorrectOrder();
         
 	}
@@ -154,13 +203,53 @@ public class InvocationExpectation implements Expectation {
     }
 	
     public Object invoke(Invocation invocation) throws Throwable {
-		invocationCount++;
+        counted(invocationCount.getAndIncrement());
+        return perform(invocation);
+	}
+    
+    /**
+     * Counts an invocation if the cardinality allows another one.  Returns
+     * <code>false</code>, without counting the invocation, if invocations 
+     * made by other threads since this expectation matched have used up the
+     * invocations it allows.  A counted invocation must then be 
+     * {@link #perform(Invocation) performed}.
+     */
+    public boolean countInvocationIfAllowed() {
+        for (;;) {
+            int count = invocationCount.get();
+            if (!cardinality.allowsMoreInvocations(count)) {
+                return false;
+            }
+            if (invocationCount.compareAndSet(count, count + 1)) {
+                counted(count);
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Performs the side effects and action of an invocation that has 
+     * already been counted.
+     */
+    public Object perform(Invocation invocation) throws Throwable {
 		performSideEffects();
 		final Object result = action.invoke(invocation);
         invocation.checkReturnTypeCompatibility(result);
         return result;
-	}
+    }
+    
+    private void counted(int previousCount) {
+        if (!cardinality.isSatisfied(previousCount) && cardinality.isSatisfied(previousCount + 1)) {
+            notifySatisfactionListeners();
+        }
+    }
 
+    private void notifySatisfactionListeners() {
+        for (SatisfactionListener listener : satisfactionListeners) {
+            listener.expectationSatisfied(this);
+        }
+    }
+    
     private void performSideEffects() {
         for (SideEffect sideEffect : sideEffects) {
             sideEffect.perform();
@@ -175,6 +264,10 @@ public class InvocationExpectation implements Expectation {
         public boolean isCompatibleWith(Object[] parameters) {
             return true;
         }
+        
+        public boolean matchesParametersOf(Invocation invocation) {
+            return true;
+        }
     };
 
 }
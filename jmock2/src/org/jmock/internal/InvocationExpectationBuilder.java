@@ -24,6 +24,7 @@ public class InvocationExpectationBuilder
     private final InvocationExpectation expectation = new InvocationExpectation();
     
     private boolean isFullySpecified = false;
+    private boolean isCapturing = false;
     private boolean needsDefaultAction = true;
     private List<Matcher<?>> capturedParameterMatchers = new ArrayList<Matcher<?>>();
     
@@ -67,6 +68,7 @@ public class InvocationExpectationBuilder
         
         expectation.setObjectMatcher(new MockObjectMatcher(mockObject));
         isFullySpecified = true;
+        isCapturing = true;
         
         Object capturingImposter = ((CaptureControl)mockObject).captureExpectationTo(this);
         
@@ -82,6 +84,7 @@ public class InvocationExpectationBuilder
     }
     
     public void createExpectationFrom(Invocation invocation) {
+        isCapturing = false;
         expectation.setMethod(invocation.getInvokedMethod());
         
         if (capturedParameterMatchers.isEmpty()) {
@@ -99,6 +102,18 @@ public class InvocationExpectationBuilder
         }
     }
     
+    public boolean isCapturing() {
+        return isCapturing;
+    }
+    
+    /**
+     * Stops capturing: the expectation will not be specified by a later
+     * invocation of the mock object.
+     */
+    public void endCapture() {
+        isCapturing = false;
+    }
+    
     public void checkWasFullySpecified() {
         if (!isFullySpecified) {
             throw new IllegalStateException("expectation was not fully specified");
@@ -5,7 +5,6 @@ import java.util.List;
 
 import org.hamcrest.Description;
 import org.jmock.Sequence;
-import org.jmock.api.Expectation;
 
 /**
  * A sequence of expectations.
@@ -16,7 +15,15 @@ import org.jmock.api.Expectation;
  */
 public class NamedSequence implements Sequence {
     private final String name;
-    private List<Expectation> elements = new ArrayList<Expectation>();
+    private List<InvocationExpectation> elements = new ArrayList<InvocationExpectation>();
+    
+    // The number of elements at the start of the sequence that are known to
+    // be satisfied.  Expectations stay satisfied once they are, so the
+    // watermark only moves forward and each element is checked until it
+    // becomes satisfied rather than on every invocation.  Threads that race
+    // to move the watermark can only leave it short of the satisfied prefix,
+    // never beyond it.
+    private volatile int satisfiedPrefixLength = 0;
     
     public NamedSequence(String name) {
         this.name = name;
@@ -34,10 +41,12 @@ public class NamedSequence implements Sequence {
     }
     
     private boolean isSatisfiedToIndex(int index) {
-        for (int i = 0; i < index; i++) {
-            if (!elements.get(i).isSatisfied()) return false;
+        int satisfied = satisfiedPrefixLength;
+        while (satisfied < index && elements.get(satisfied).isSatisfied()) {
+            satisfied++;
         }
-        return true;
+        satisfiedPrefixLength = satisfied;
+        return satisfied >= index;
     }
     
     private static class InSequenceOrderingConstraint implements OrderingConstraint {
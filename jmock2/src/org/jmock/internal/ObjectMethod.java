@@ -0,0 +1,61 @@
+package org.jmock.internal;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * The methods defined by the Object class that mock objects fake, rather
+ * than dispatching them to expectations.
+ */
+public enum ObjectMethod {
+    HASH_CODE(int.class, "hashCode"),
+    TO_STRING(String.class, "toString"),
+    EQUALS(boolean.class, "equals", Object.class),
+    FINALIZE(void.class, "finalize"),
+    NONE(null, null);
+    
+    private static final ObjectMethod[] CANDIDATES = {HASH_CODE, TO_STRING, EQUALS, FINALIZE};
+    
+    private final Class<?> returnType;
+    private final String name;
+    private final Class<?>[] parameterTypes;
+    
+    private ObjectMethod(Class<?> returnType, String name, Class<?>... parameterTypes) {
+        this.returnType = returnType;
+        this.name = name;
+        this.parameterTypes = parameterTypes;
+    }
+    
+    /**
+     * Returns the Object method that <var>method</var> is, or {@link #NONE}.
+     * 
+     * Only methods that have the return type and name of an Object method
+     * need their parameter types compared, which copies an array: 
+     * {@link #mightBe(Method)} tells if a method is one of those.
+     */
+    public static ObjectMethod of(Method method) {
+        ObjectMethod candidate = candidateFor(method);
+        if (candidate != NONE && Arrays.equals(method.getParameterTypes(), candidate.parameterTypes)) {
+            return candidate;
+        }
+        return NONE;
+    }
+    
+    /**
+     * Could <var>method</var> be an Object method?  Answers without
+     * examining the method's parameter types.
+     */
+    public static boolean mightBe(Method method) {
+        return candidateFor(method) != NONE;
+    }
+    
+    private static ObjectMethod candidateFor(Method method) {
+        Class<?> returnType = method.getReturnType();
+        for (ObjectMethod candidate : CANDIDATES) {
+            if (candidate.returnType == returnType && candidate.name.equals(method.getName())) {
+                return candidate;
+            }
+        }
+        return NONE;
+    }
+}
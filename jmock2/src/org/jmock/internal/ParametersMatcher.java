@@ -1,6 +1,7 @@
 package org.jmock.internal;
 
 import org.hamcrest.Matcher;
+import org.jmock.api.Invocation;
 
 public interface ParametersMatcher extends Matcher<Object[]> {
     /**
@@ -8,5 +9,15 @@ public interface ParametersMatcher extends Matcher<Object[]> {
      * @param parameters The parameters to be matched
      * @return true iff the parameters may be relevant.
      */
-    boolean isCompatibleWith(Object[] parameters); 
+    boolean isCompatibleWith(Object[] parameters);
+    
+    /**
+     * Do the parameters of the invocation match?  Gives the same result as
+     * matching the invocation's parameters as an array, but does not copy
+     * the parameters or describe why they do not match.
+     * 
+     * @param invocation The invocation whose parameters are to be matched
+     * @return true iff the parameters match.
+     */
+    boolean matchesParametersOf(Invocation invocation);
 }
@@ -5,6 +5,7 @@ package org.jmock.internal;
 import java.lang.reflect.Array;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hamcrest.Description;
 import org.jmock.api.Action;
@@ -22,10 +23,14 @@ import org.jmock.lib.JavaReflectionImposteriser;
  * <code>null</code> is returned. The default value can be overridden for
  * specific types.
  * 
+ * Empty arrays and Null Objects are created once per type and returned
+ * for every later invocation until the action is reconfigured.
+ * 
  * @author nat
  */
 public class ReturnDefaultValueAction implements Action {
     private final Map<Class<?>, Object> resultValuesByType = new HashMap<Class<?>, Object>();
+    private final Map<Class<?>, Object> createdValuesByType = new ConcurrentHashMap<Class<?>, Object>();
     private Imposteriser imposteriser;
 
     public ReturnDefaultValueAction(Imposteriser imposteriser) {
@@ -39,6 +44,7 @@ public class ReturnDefaultValueAction implements Action {
     
     public void setImposteriser(Imposteriser newImposteriser) {
         this.imposteriser = newImposteriser;
+        createdValuesByType.clear();
     }
     
     public void describeTo(Description description) {
@@ -47,6 +53,7 @@ public class ReturnDefaultValueAction implements Action {
 
     public void addResult(Class<?> resultType, Object resultValue) {
         resultValuesByType.put(resultType, resultValue);
+        createdValuesByType.clear();
     }
 
     public Object invoke(Invocation invocation) throws Throwable {
@@ -55,7 +62,19 @@ public class ReturnDefaultValueAction implements Action {
         if (resultValuesByType.containsKey(returnType)) {
             return resultValuesByType.get(returnType);
         }
-        else if (returnType.isArray()) {
+        
+        Object createdValue = createdValuesByType.get(returnType);
+        if (createdValue == null) {
+            createdValue = createValueOf(returnType);
+            if (createdValue != null) {
+                createdValuesByType.put(returnType, createdValue);
+            }
+        }
+        return createdValue;
+    }
+    
+    private Object createValueOf(Class<?> returnType) {
+        if (returnType.isArray()) {
             return Array.newInstance(returnType.getComponentType(), 0);
         }
         else if (imposteriser.canImposterise(returnType)) {
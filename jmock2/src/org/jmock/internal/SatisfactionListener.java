@@ -0,0 +1,11 @@
+package org.jmock.internal;
+
+/**
+ * Is told when an {@link InvocationExpectation} becomes satisfied.
+ * 
+ * An expectation's invocation count only ever grows, so once an expectation
+ * is satisfied it stays satisfied and the listener is told at most once.
+ */
+public interface SatisfactionListener {
+    void expectationSatisfied(InvocationExpectation expectation);
+}
@@ -1,12 +1,23 @@
 package org.jmock.internal;
 
+import static java.lang.Thread.currentThread;
+
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import static java.lang.Thread.currentThread;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 
 public class SearchingClassLoader extends ClassLoader {
+    // Combined loaders are canonicalised so that imposterisers, which cache
+    // proxy classes per class loader, reuse the proxy classes they have
+    // already generated.  Loaders are held weakly so that they, and any
+    // proxy classes they define, can be unloaded once no longer used.
+    private static final Map<ClassLoader, Map<ClassLoader, WeakReference<SearchingClassLoader>>> canonicalLoaders =
+        new WeakHashMap<ClassLoader, Map<ClassLoader, WeakReference<SearchingClassLoader>>>();
+    
     private final ClassLoader nextToSearch;
     
     public SearchingClassLoader(ClassLoader parent, ClassLoader nextToSearch) {
@@ -22,12 +33,30 @@ public class SearchingClassLoader extends ClassLoader {
         ClassLoader loader = parentLoaders.get(parentLoaders.size()-1);
         
         for (int i = parentLoaders.size()-2; i >= 0; i--) {
-            loader = new SearchingClassLoader(parentLoaders.get(i), loader);
+            loader = canonicalSearchingClassLoader(parentLoaders.get(i), loader);
         }
         
         return loader;
     }
     
+    private static SearchingClassLoader canonicalSearchingClassLoader(ClassLoader parent, ClassLoader nextToSearch) {
+        synchronized (canonicalLoaders) {
+            Map<ClassLoader, WeakReference<SearchingClassLoader>> loadersWithParent = canonicalLoaders.get(parent);
+            if (loadersWithParent == null) {
+                loadersWithParent = new WeakHashMap<ClassLoader, WeakReference<SearchingClassLoader>>();
+                canonicalLoaders.put(parent, loadersWithParent);
+            }
+            
+            WeakReference<SearchingClassLoader> reference = loadersWithParent.get(nextToSearch);
+            SearchingClassLoader loader = (reference == null) ? null : reference.get();
+            if (loader == null) {
+                loader = new SearchingClassLoader(parent, nextToSearch);
+                loadersWithParent.put(nextToSearch, new WeakReference<SearchingClassLoader>(loader));
+            }
+            return loader;
+        }
+    }
+    
     public static ClassLoader combineLoadersOf(Class<?>... classes) {
         return combineLoadersOf(classes[0], classes);
     }
@@ -3,6 +3,7 @@ package org.jmock.internal;
 import java.util.ConcurrentModificationException;
 
 import org.jmock.api.Invocation;
+import org.jmock.api.InvocationHistory;
 import org.jmock.api.Invokable;
 import org.jmock.api.ThreadingPolicy;
 import org.jmock.lib.concurrent.Synchroniser;
@@ -23,6 +24,11 @@ public class SingleThreadedPolicy implements ThreadingPolicy {
         };
     }
     
+    // Invocations on other threads fail before they are recorded.
+    public InvocationHistory synchroniseAccessTo(InvocationHistory history) {
+        return history;
+    }
+    
     private void checkRunningOnTestThread() {
         if (Thread.currentThread() != testThread) {
             reportError("the Mockery is not thread-safe: use a " + 
@@ -0,0 +1,12 @@
+package org.jmock.internal;
+
+/**
+ * Is told when a {@link StateMachine} moves into a different state.
+ * 
+ * The listener is told on the thread that changed the state, after the
+ * change has been made.  Becoming the state that is already current is not
+ * a change.
+ */
+public interface StateChangeListener {
+    void stateChanged(StateMachine stateMachine);
+}
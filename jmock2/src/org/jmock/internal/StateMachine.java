@@ -1,12 +1,17 @@
 package org.jmock.internal;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
 import org.jmock.States;
 
 public class StateMachine implements States {
     private final String name;
-    private String currentState = null;
+    private final List<StateChangeListener> listeners = new CopyOnWriteArrayList<StateChangeListener>();
+    private final AtomicReference<String> currentState = new AtomicReference<String>(null);
     
     public StateMachine(String name) {
         this.name = name;
@@ -22,40 +27,77 @@ public class StateMachine implements States {
         return this;
     }
     
+    // The state is swapped atomically, so that when threads change it at 
+    // the same time, each sees the state it replaced and none misses a change.
     public void become(String nextState) {
-        currentState = nextState;
-    }
-
-    public State is(final String state) {
-        return new State() {
-            public void activate() {
-                currentState = state;
-            }
-
-            public boolean isActive() {
-                return state.equals(currentState);
+        String previousState = currentState.getAndSet(nextState);
+        
+        if (nextState == null ? previousState != null : !nextState.equals(previousState)) {
+            for (StateChangeListener listener : listeners) {
+                listener.stateChanged(this);
             }
-
-            public void describeTo(Description description) {
-                description.appendText(name).appendText(" is ").appendText(state);
-            }
-        };
+        }
     }
     
-    public StatePredicate isNot(final String state) {
-        return new StatePredicate() {
-            public boolean isActive() {
-                return !state.equals(currentState);
-            }
+    public void addStateChangeListener(StateChangeListener listener) {
+        listeners.add(listener);
+    }
 
-            public void describeTo(Description description) {
-                description.appendText(name).appendText(" is not ").appendText(state);
-            }
-        };
+    public State is(String state) {
+        return new IsState(state);
+    }
+    
+    public StatePredicate isNot(String state) {
+        return new IsNotState(state);
     }
     
     public void describeTo(Description description) {
+        String state = currentState.get();
         description.appendText(name)
-                   .appendText(currentState == null ? " has no current state" : (" is " + currentState));
+                   .appendText(state == null ? " has no current state" : (" is " + state));
+    }
+    
+    private class IsState implements State, StateMachinePredicate {
+        private final String state;
+        
+        public IsState(String state) {
+            this.state = state;
+        }
+        
+        public void activate() {
+            become(state);
+        }
+
+        public boolean isActive() {
+            return state.equals(currentState.get());
+        }
+        
+        public StateMachine stateMachine() {
+            return StateMachine.this;
+        }
+
+        public void describeTo(Description description) {
+            description.appendText(name).appendText(" is ").appendText(state);
+        }
+    }
+    
+    private class IsNotState implements StateMachinePredicate {
+        private final String state;
+        
+        public IsNotState(String state) {
+            this.state = state;
+        }
+        
+        public boolean isActive() {
+            return !state.equals(currentState.get());
+        }
+        
+        public StateMachine stateMachine() {
+            return StateMachine.this;
+        }
+
+        public void describeTo(Description description) {
+            description.appendText(name).appendText(" is not ").appendText(state);
+        }
     }
 }
@@ -0,0 +1,9 @@
+package org.jmock.internal;
+
+/**
+ * A {@link StatePredicate} whose value can only change when the current
+ * state of its {@link StateMachine} changes.
+ */
+public interface StateMachinePredicate extends StatePredicate {
+    StateMachine stateMachine();
+}
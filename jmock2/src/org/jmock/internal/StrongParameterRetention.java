@@ -0,0 +1,19 @@
+package org.jmock.internal;
+
+import org.jmock.api.Invocation;
+import org.jmock.api.ParameterRetention;
+import org.jmock.api.RecordedInvocation;
+
+/**
+ * Records the invocation itself, keeping its parameters alive for as long
+ * as the invocation is in the history.
+ * 
+ * This is the retention used by default.
+ */
+public class StrongParameterRetention implements ParameterRetention {
+    public static final StrongParameterRetention INSTANCE = new StrongParameterRetention();
+    
+    public RecordedInvocation retain(Invocation invocation) {
+        return invocation;
+    }
+}
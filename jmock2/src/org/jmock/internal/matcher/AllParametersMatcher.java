@@ -4,35 +4,85 @@ import static java.util.Arrays.asList;
 
 import java.util.List;
 
+import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
-import org.hamcrest.TypeSafeDiagnosingMatcher;
 import org.hamcrest.core.IsEqual;
+import org.jmock.api.Invocation;
 import org.jmock.internal.ParametersMatcher;
 
-public class AllParametersMatcher extends TypeSafeDiagnosingMatcher<Object[]>  implements ParametersMatcher {
+/**
+ * Matches each parameter with its own matcher.
+ * 
+ * Matching does not allocate: the description of why parameters do not match
+ * is only built when it is asked for by {@link #describeMismatch}.
+ */
+public class AllParametersMatcher extends BaseMatcher<Object[]> implements ParametersMatcher {
     private final Matcher<Object>[] elementMatchers;
+    private final Object[] expectedValues;
 
     public AllParametersMatcher(Object[] expectedValues) {
         this.elementMatchers =  equalMatchersFor(expectedValues);
+        this.expectedValues = expectedValues.clone();
     }
     
     @SuppressWarnings("unchecked")
     public AllParametersMatcher(List<Matcher<?>> parameterMatchers) {
         this.elementMatchers = parameterMatchers.toArray(new Matcher[0]);
+        this.expectedValues = null;
+    }
+
+    /**
+     * The values that parameters must be equal to, or <code>null</code> if
+     * the parameters are matched by arbitrary matchers.
+     */
+    public Object[] getExpectedValues() {
+        return expectedValues == null ? null : expectedValues.clone();
     }
 
     public boolean isCompatibleWith(Object[] parameters) {
         return elementMatchers.length == parameters.length;
     }
 
+    public boolean matches(Object item) {
+        if (!(item instanceof Object[])) {
+            return false;
+        }
+        
+        Object[] parameters = (Object[])item;
+        if (elementMatchers.length != parameters.length) {
+            return false;
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            if (!elementMatchers[i].matches(parameters[i])) return false;
+        }
+        return true;
+    }
+
+    public boolean matchesParametersOf(Invocation invocation) {
+        if (elementMatchers.length != invocation.getParameterCount()) {
+            return false;
+        }
+        for (int i = 0; i < elementMatchers.length; i++) {
+            if (!elementMatchers[i].matches(invocation.getParameter(i))) return false;
+        }
+        return true;
+    }
+
     @Override
-    public boolean matchesSafely(Object[] parameters, Description mismatch) {
-        return matchesNumberOfParameters(parameters, mismatch)
-            && matchesParameters(parameters, mismatch);
+    public void describeMismatch(Object item, Description mismatch) {
+        if (item instanceof Object[]) {
+            Object[] parameters = (Object[])item;
+            if (describeNumberOfParametersMismatch(parameters, mismatch)) {
+                describeParametersMismatch(parameters, mismatch);
+            }
+        }
+        else {
+            super.describeMismatch(item, mismatch);
+        }
     }
 
-    private boolean matchesNumberOfParameters(Object[] parameters, Description mismatch) {
+    private boolean describeNumberOfParametersMismatch(Object[] parameters, Description mismatch) {
         if (elementMatchers.length != parameters.length) {
             mismatch.appendText("wrong number of parameters: ")
                     .appendValue(parameters);
@@ -41,18 +91,15 @@ public class AllParametersMatcher extends TypeSafeDiagnosingMatcher<Object[]>  i
         return true;
     }
 
-    private boolean matchesParameters(Object[] parameters, Description mismatch) {
-        boolean result = true;
+    private void describeParametersMismatch(Object[] parameters, Description mismatch) {
         for (int i = 0; i < parameters.length; i++) {
-            result &= matchesParameter(parameters[i], elementMatchers[i], mismatch, i);
+            describeParameterMismatch(parameters[i], elementMatchers[i], mismatch, i);
         }
-        return result;
     }
 
-    private boolean matchesParameter(final Object value, final Matcher<Object> matcher, Description mismatch, int index) {
+    private void describeParameterMismatch(final Object value, final Matcher<Object> matcher, Description mismatch, int index) {
         mismatch.appendText("\n      parameter " + index + " ");
-        final boolean parameterMatches = matcher.matches(value);
-        if (parameterMatches) {
+        if (matcher.matches(value)) {
             mismatch.appendText("matched: ").appendDescriptionOf(matcher);
         } else {
             mismatch.appendText("did not match: ")
@@ -60,7 +107,6 @@ public class AllParametersMatcher extends TypeSafeDiagnosingMatcher<Object[]>  i
                 .appendText(", because ");
             matcher.describeMismatch(value, mismatch);
         }
-        return parameterMatches;
     }
 
     public void describeTo(Description description) {
@@ -0,0 +1,64 @@
+package org.jmock.lib;
+
+import java.util.Arrays;
+
+import org.hamcrest.Description;
+import org.jmock.api.InvocationHistory;
+import org.jmock.api.RecordedInvocation;
+
+/**
+ * Records only the most recent invocations, so that a long-running test
+ * uses a constant amount of memory for its history.  Failure messages
+ * report how many earlier invocations were discarded.
+ */
+public class BoundedInvocationHistory implements InvocationHistory {
+    private final RecordedInvocation[] recent;
+    private long count = 0;
+    
+    /**
+     * @param capacity
+     *     The number of most recent invocations to keep.
+     */
+    public BoundedInvocationHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+        this.recent = new RecordedInvocation[capacity];
+    }
+    
+    public void record(RecordedInvocation invocation) {
+        recent[(int)(count % recent.length)] = invocation;
+        count++;
+    }
+    
+    public void describeTo(Description description) {
+        if (count == 0) {
+            description.appendText(" nothing!");
+        }
+        else {
+            long discarded = count - recent.length;
+            if (discarded > 0) {
+                description.appendText("\n  (" + discarded + " earlier " + invocations(discarded) + " not shown)");
+            }
+            description.appendList("\n  ", "\n  ", "\n", Arrays.asList(inOrder()));
+        }
+    }
+    
+    private RecordedInvocation[] inOrder() {
+        if (count <= recent.length) {
+            RecordedInvocation[] inOrder = new RecordedInvocation[(int)count];
+            System.arraycopy(recent, 0, inOrder, 0, inOrder.length);
+            return inOrder;
+        }
+        
+        RecordedInvocation[] inOrder = new RecordedInvocation[recent.length];
+        int oldest = (int)(count % recent.length);
+        System.arraycopy(recent, oldest, inOrder, 0, recent.length - oldest);
+        System.arraycopy(recent, 0, inOrder, recent.length - oldest, oldest);
+        return inOrder;
+    }
+    
+    private static String invocations(long n) {
+        return n == 1 ? "invocation" : "invocations";
+    }
+}
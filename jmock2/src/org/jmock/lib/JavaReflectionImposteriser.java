@@ -30,7 +30,7 @@ public class JavaReflectionImposteriser implements Imposteriser {
         
         return (T)Proxy.newProxyInstance(classLoader, proxiedClasses, new InvocationHandler() {
             public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                return mockObject.invoke(new Invocation(proxy, method, args));
+                return mockObject.invoke(Invocation.adopting(proxy, method, args));
             }
         });
     }
@@ -0,0 +1,86 @@
+package org.jmock.lib;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.Description;
+import org.hamcrest.SelfDescribing;
+import org.jmock.api.InvocationHistory;
+import org.jmock.api.RecordedInvocation;
+import org.jmock.internal.Formatting;
+
+/**
+ * Records how many times each method of each mock object was invoked, 
+ * but not the invocations themselves, so that a long-running test does
+ * not keep the invocations or their parameters alive.
+ * 
+ * Invocations are counted per method, not per expectation: invocations 
+ * that matched different expectations of the same method are counted 
+ * together.  How many times each expectation was invoked is reported in
+ * the description of the expectations.
+ */
+public class MethodInvocationCountingHistory implements InvocationHistory {
+    private final Map<Object, Map<Method, MethodCount>> countsByReceiver = 
+        new IdentityHashMap<Object, Map<Method, MethodCount>>();
+    private final List<MethodCount> countsInOrderOfFirstInvocation = new ArrayList<MethodCount>();
+    private long count = 0;
+    
+    public void record(RecordedInvocation invocation) {
+        countFor(invocation).count++;
+        count++;
+    }
+    
+    private MethodCount countFor(RecordedInvocation invocation) {
+        Map<Method, MethodCount> countsByMethod = countsByReceiver.get(invocation.getInvokedObject());
+        if (countsByMethod == null) {
+            countsByMethod = new HashMap<Method, MethodCount>();
+            countsByReceiver.put(invocation.getInvokedObject(), countsByMethod);
+        }
+        
+        MethodCount methodCount = countsByMethod.get(invocation.getInvokedMethod());
+        if (methodCount == null) {
+            methodCount = new MethodCount(invocation.getInvokedObject(), invocation.getInvokedMethod());
+            countsByMethod.put(invocation.getInvokedMethod(), methodCount);
+            countsInOrderOfFirstInvocation.add(methodCount);
+        }
+        return methodCount;
+    }
+    
+    public void describeTo(Description description) {
+        if (count == 0) {
+            description.appendText(" nothing!");
+        }
+        else {
+            description.appendText(" " + count + (count == 1 ? " invocation" : " invocations") 
+                                   + ", counted but not recorded");
+            description.appendList("\n  ", "\n  ", "\n", countsInOrderOfFirstInvocation);
+        }
+    }
+    
+    private static class MethodCount implements SelfDescribing {
+        private final Object receiver;
+        private final Method method;
+        public long count = 0;
+        
+        public MethodCount(Object receiver, Method method) {
+            this.receiver = receiver;
+            this.method = method;
+        }
+        
+        public void describeTo(Description description) {
+            description.appendText(receiver.toString())
+                       .appendText(".")
+                       .appendText(method.getName())
+                       .appendText("(...): ")
+                       .appendText(times(count));
+        }
+        
+        private static String times(long n) {
+            return n <= Integer.MAX_VALUE ? Formatting.times((int)n) : (n + " times");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.jmock.lib;
+
+import java.lang.reflect.Method;
+
+import org.hamcrest.BaseDescription;
+import org.hamcrest.Description;
+import org.jmock.api.Invocation;
+import org.jmock.api.ParameterRetention;
+import org.jmock.api.RecordedInvocation;
+
+/**
+ * Records invocations as a description taken when they are recorded, so that
+ * the history does not keep their parameters alive.  Descriptions longer
+ * than a maximum length are truncated.
+ * 
+ * Because the description is taken when the invocation is recorded, the
+ * history reports the state of mutable parameters at the time of the call.
+ */
+public class SnapshotParameterRetention implements ParameterRetention {
+    private static final String TRUNCATION_MARKER = "...";
+    
+    private final int maxLength;
+    
+    /**
+     * @param maxLength
+     *     The maximum length of the description of an invocation.
+     */
+    public SnapshotParameterRetention(int maxLength) {
+        if (maxLength < TRUNCATION_MARKER.length()) {
+            throw new IllegalArgumentException("maximum length must be at least " 
+                                               + TRUNCATION_MARKER.length() + ", was " + maxLength);
+        }
+        this.maxLength = maxLength;
+    }
+    
+    public RecordedInvocation retain(Invocation invocation) {
+        TruncatingDescription description = new TruncatingDescription(maxLength);
+        invocation.describeTo(description);
+        return new SnapshotOfInvocation(invocation, description.toString());
+    }
+    
+    // Stops appending once it is longer than the maximum length, so that
+    // parameters are not described in full only to be cut off.  One 
+    // character more than the maximum is kept to tell whether to truncate.
+    private static class TruncatingDescription extends BaseDescription {
+        private final StringBuilder text = new StringBuilder();
+        private final int maxLength;
+        
+        public TruncatingDescription(int maxLength) {
+            this.maxLength = maxLength;
+        }
+        
+        @Override
+        public Description appendValue(Object value) {
+            return isFull() ? this : super.appendValue(value);
+        }
+        
+        @Override
+        protected void append(String str) {
+            int room = maxLength + 1 - text.length();
+            if (room > 0) {
+                text.append(str, 0, Math.min(str.length(), room));
+            }
+        }
+        
+        @Override
+        protected void append(char c) {
+            if (!isFull()) {
+                text.append(c);
+            }
+        }
+        
+        private boolean isFull() {
+            return text.length() > maxLength;
+        }
+        
+        @Override
+        public String toString() {
+            if (!isFull()) {
+                return text.toString();
+            }
+            return text.substring(0, maxLength - TRUNCATION_MARKER.length()) + TRUNCATION_MARKER;
+        }
+    }
+    
+    private static class SnapshotOfInvocation implements RecordedInvocation {
+        private final Object invokedObject;
+        private final Method invokedMethod;
+        private final String snapshot;
+        
+        public SnapshotOfInvocation(Invocation invocation, String snapshot) {
+            this.invokedObject = invocation.getInvokedObject();
+            this.invokedMethod = invocation.getInvokedMethod();
+            this.snapshot = snapshot;
+        }
+        
+        public Object getInvokedObject() {
+            return invokedObject;
+        }
+
+        public Method getInvokedMethod() {
+            return invokedMethod;
+        }
+
+        public void describeTo(Description description) {
+            description.appendText(snapshot);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.jmock.lib;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+
+import org.hamcrest.Description;
+import org.jmock.api.Invocation;
+import org.jmock.api.ParameterRetention;
+import org.jmock.api.RecordedInvocation;
+
+/**
+ * Records invocations with weak references to their parameters, so that the
+ * history does not stop parameters from being garbage collected.  Parameters
+ * that have been collected are described as <code>&lt;garbage collected&gt;</code>.
+ */
+public class WeakParameterRetention implements ParameterRetention {
+    public static final WeakParameterRetention INSTANCE = new WeakParameterRetention();
+    
+    public RecordedInvocation retain(Invocation invocation) {
+        return new WeaklyRecordedInvocation(invocation);
+    }
+    
+    private static class WeaklyRecordedInvocation implements RecordedInvocation {
+        private final Object invokedObject;
+        private final Method invokedMethod;
+        private final WeakReference<?>[] parameterValues;
+        
+        public WeaklyRecordedInvocation(Invocation invocation) {
+            this.invokedObject = invocation.getInvokedObject();
+            this.invokedMethod = invocation.getInvokedMethod();
+            this.parameterValues = new WeakReference<?>[invocation.getParameterCount()];
+            for (int i = 0; i < parameterValues.length; i++) {
+                Object value = invocation.getParameter(i);
+                parameterValues[i] = (value == null) ? null : new WeakReference<Object>(value);
+            }
+        }
+        
+        public Object getInvokedObject() {
+            return invokedObject;
+        }
+
+        public Method getInvokedMethod() {
+            return invokedMethod;
+        }
+
+        public void describeTo(Description description) {
+            description.appendText(invokedObject.toString());
+            description.appendText(".");
+            description.appendText(invokedMethod.getName());
+            description.appendText("(");
+            for (int i = 0; i < parameterValues.length; i++) {
+                if (i > 0) {
+                    description.appendText(", ");
+                }
+                describeParameter(parameterValues[i], description);
+            }
+            description.appendText(")");
+        }
+
+        private void describeParameter(WeakReference<?> parameterValue, Description description) {
+            if (parameterValue == null) {
+                description.appendValue(null);
+            }
+            else {
+                Object value = parameterValue.get();
+                if (value == null) {
+                    description.appendText("<garbage collected>");
+                }
+                else {
+                    description.appendValue(value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.jmock.lib.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jmock.lib.concurrent.internal.LatencyHistogram;
+
+
+/**
+ * The throughput and latencies of the actions performed by a {@link Blitzer}.
+ *
+ * Latencies are reported in nanoseconds, rounded up by at most 1/16th.
+ */
+public class BlitzResult {
+    private final long actionCount;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies;
+    private final VirtualThreadUsage virtualThreadUsage;
+
+    BlitzResult(long actionCount, long elapsedNanos, LatencyHistogram latencies) {
+        this(actionCount, elapsedNanos, latencies, null);
+    }
+
+    BlitzResult(long actionCount, long elapsedNanos, LatencyHistogram latencies,
+                       VirtualThreadUsage virtualThreadUsage)
+    {
+        this.actionCount = actionCount;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.virtualThreadUsage = virtualThreadUsage;
+    }
+
+    /**
+     * The number of actions that were performed.
+     */
+    public long actionCount() {
+        return actionCount;
+    }
+
+    /**
+     * The time from when the actions were released to when the last one finished.
+     */
+    public long elapsedTime(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double actionsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : actionCount * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * The latency that <var>percentile</var> percent of the actions took no longer than.
+     */
+    public long latencyPercentile(double percentile) {
+        return latencies.percentile(percentile);
+    }
+
+    public long medianLatency() {
+        return latencyPercentile(50.0);
+    }
+
+    public long p99Latency() {
+        return latencyPercentile(99.0);
+    }
+
+    public long p999Latency() {
+        return latencyPercentile(99.9);
+    }
+
+    /**
+     * How the actions used the virtual thread scheduler, or <code>null</code>
+     * if the actions were not performed on virtual threads.
+     */
+    public VirtualThreadUsage virtualThreadUsage() {
+        return virtualThreadUsage;
+    }
+
+    @Override
+    public String toString() {
+        return actionCount + " actions in " + elapsedTime(TimeUnit.MILLISECONDS) + " ms"
+             + " (" + Math.round(actionsPerSecond()) + " actions/s)"
+             + ", latency p50 " + medianLatency() + " ns"
+             + ", p99 " + p99Latency() + " ns"
+             + ", p99.9 " + p999Latency() + " ns"
+             + (virtualThreadUsage == null ? "" : ", " + virtualThreadUsage);
+    }
+}
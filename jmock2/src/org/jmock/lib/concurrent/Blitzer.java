@@ -1,17 +1,40 @@
 package org.jmock.lib.concurrent;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.jmock.lib.concurrent.internal.LatencyHistogram;
+import org.jmock.lib.concurrent.internal.VirtualThreadMonitor;
+import org.jmock.lib.concurrent.internal.VirtualThreads;
 
 /**
  * A class that "blitzes" an object by calling it many times, from multiple
  * threads. Used for stress-testing synchronisation.
  * 
+ * A blitz that reports its throughput and the latencies of its actions, in
+ * a {@link BlitzResult}, submits all the actions to the executor before it
+ * releases any of them to run, so that the threads start calling the object
+ * at the same time.  Its executor must therefore be able to queue all the 
+ * actions without blocking.  An executor that runs an action on the 
+ * submitting thread, such as one with a 
+ * {@link java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy}, releases
+ * the blitz early instead.
+ * 
+ * A Blitzer can also perform an action repeatedly for a period of time,
+ * measuring the actions performed only after a warm-up period has passed.
+ * 
+ * On JDKs that support virtual threads, a Blitzer can perform each action 
+ * on its own virtual thread.  Its results then also report how the actions 
+ * used the virtual thread scheduler.
+ * 
  * @author nat
  */
 public class Blitzer {
@@ -22,19 +45,63 @@ public class Blitzer {
 
     private final ExecutorService executorService;
     private final int actionCount;
+    private final int threadCount;
+    private final boolean monitorVirtualThreads;
     
     public Blitzer(int actionCount) {
         this(actionCount, DEFAULT_THREAD_COUNT);
     }
     
     public Blitzer(int actionCount, int threadCount) {
-        this.actionCount = actionCount;
-        this.executorService = Executors.newFixedThreadPool(threadCount);
+        this(actionCount, threadCount, Executors.newFixedThreadPool(threadCount));
     }
     
     public Blitzer(int actionCount, ExecutorService executorService) {
+        this(actionCount, DEFAULT_THREAD_COUNT, executorService);
+    }
+    
+    /**
+     * @param threadCount
+     *     The number of threads that perform actions concurrently in a 
+     *     {@link #blitzFor(long, long, TimeUnit, Runnable) timed blitz}.
+     *     The executor must be able to run that many tasks at once.
+     */
+    public Blitzer(int actionCount, int threadCount, ExecutorService executorService) {
+        this(actionCount, threadCount, executorService, false);
+    }
+    
+    private Blitzer(int actionCount, int threadCount, ExecutorService executorService, boolean monitorVirtualThreads) {
         this.actionCount = actionCount;
-        this.executorService = executorService;;
+        this.threadCount = threadCount;
+        this.executorService = executorService;
+        this.monitorVirtualThreads = monitorVirtualThreads;
+    }
+    
+    /**
+     * Returns a Blitzer that performs each action on a new virtual thread.
+     * 
+     * @throws UnsupportedOperationException
+     *     if the JDK does not support virtual threads.
+     * @see #virtualThreadsAreAvailable()
+     */
+    public static Blitzer withVirtualThreads(int actionCount) {
+        return withVirtualThreads(actionCount, actionCount);
+    }
+    
+    /**
+     * Returns a Blitzer that performs each action on a new virtual thread
+     * and uses <var>threadCount</var> virtual threads in a timed blitz.
+     * 
+     * @throws UnsupportedOperationException
+     *     if the JDK does not support virtual threads.
+     * @see #virtualThreadsAreAvailable()
+     */
+    public static Blitzer withVirtualThreads(int actionCount, int threadCount) {
+        return new Blitzer(actionCount, threadCount, VirtualThreads.newThreadPerTaskExecutor(), true);
+    }
+    
+    public static boolean virtualThreadsAreAvailable() {
+        return VirtualThreads.areAvailable();
     }
     
     public int totalActionCount() {
@@ -50,6 +117,81 @@ public class Blitzer {
             throw new TimeoutException("timed out waiting for blitzed actions to complete successfully");
         }
     }
+    
+    /**
+     * Blitzes the action, releasing the actions together once they have all
+     * been submitted, and reports the throughput and latencies of the actions.
+     */
+    public BlitzResult blitzWithResult(final Runnable action) throws InterruptedException {
+        Blitz blitz = spawnBlitz(action);
+        try {
+            blitz.finished.await();
+            return blitz.result();
+        }
+        finally {
+            blitz.stopMonitoring();
+        }
+    }
+
+    /**
+     * Blitzes the action, as {@link #blitzWithResult(Runnable)} does, but 
+     * fails if the actions do not all finish within a timeout.
+     */
+    public BlitzResult blitzWithResult(long timeoutMs, final Runnable action) 
+        throws InterruptedException, TimeoutException 
+    {
+        Blitz blitz = spawnBlitz(action);
+        try {
+            if (!blitz.finished.await(timeoutMs, MILLISECONDS)) {
+                throw new TimeoutException("timed out waiting for blitzed actions to complete successfully");
+            }
+            return blitz.result();
+        }
+        finally {
+            blitz.stopMonitoring();
+        }
+    }
+
+    /**
+     * Performs the action repeatedly on each of the Blitzer's threads for 
+     * <var>warmUpTime</var> and then for <var>measurementTime</var>, 
+     * and reports only the actions started during the measurement time.
+     * 
+     * The threads are stopped cooperatively: each finishes the action it is
+"     * performing when the time is up before it stops.  If an action throws an
+     * exception, all the threads stop and the first exception thrown is 
+     * rethrown to the caller.
+     * 
+     * @throws RuntimeException
+     *     the first runtime exception thrown by the action, if any.
+     * @throws Error
+     *     the first error thrown by the action, if any.
+     * @throws RejectedExecutionException 
+     *     if the executor runs an action on the calling thread, which would
+     *     then never stop.
+     */
+    public BlitzResult blitzFor(long warmUpTime, long measurementTime, TimeUnit unit, final Runnable action) 
+        throws InterruptedException 
+    {
+        final TimedBlitz blitz = new TimedBlitz(threadCount, newMonitor());
+        
+        submit(blitz, threadCount, new Runnable() {
+            public void run() {
+                blitz.performUntilStopped(action);
+            }
+        });
+        
+        blitz.start();
+        try {
+            blitz.measureAfter(unit.toNanos(warmUpTime), unit.toNanos(measurementTime));
+            blitz.finished.await();
+            blitz.rethrowFailure();
+            return blitz.result();
+        }
+        finally {
+            blitz.stopMonitoring();
+        }
+    }
 
     private CountDownLatch spawnThreads(final Runnable action) {
         final CountDownLatch finished = new CountDownLatch(actionCount);
@@ -60,6 +202,9 @@ public class Blitzer {
                     try {
                         action.run();
                     }
+                    catch (Throwable t) {
+                        reportUncaught(t);
+                    }
                     finally {
                         finished.countDown();
                     }
@@ -70,6 +215,233 @@ public class Blitzer {
         return finished;
     }
 
+    private Blitz spawnBlitz(final Runnable action) {
+        final Blitz blitz = new Blitz(actionCount, newMonitor());
+        
+        submit(blitz, actionCount, new Runnable() {
+            public void run() {
+                blitz.perform(action);
+            }
+        });
+        
+        blitz.startMonitoring();
+        blitz.start();
+        return blitz;
+    }
+    
+    // If the executor rejects a task, the tasks already submitted are 
+    // released, so that they do not wait for the blitz to start forever.
+    private void submit(final Blitz blitz, int taskCount, final Runnable task) {
+        try {
+            for (int i = 0; i < taskCount; i++) {
+                executorService.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            blitz.awaitStart();
+                            task.run();
+                        }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        catch (RejectedExecutionException e) {
+                            throw e;
+                        }
+                        catch (Throwable t) {
+                            reportUncaught(t);
+                        }
+                        finally {
+                            blitz.finished.countDown();
+                        }
+                    }
+                });
+            }
+        }
+        catch (RuntimeException e) {
+            blitz.abandon();
+            throw e;
+        }
+    }
+    
+    // A failed action is passed to the thread's uncaught exception handler 
+    // before the action is counted as finished, so that the test sees the
+    // failure as soon as the blitz returns.
+    private static void reportUncaught(Throwable t) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+    }
+    
+    private VirtualThreadMonitor newMonitor() {
+        return monitorVirtualThreads ? new VirtualThreadMonitor() : null;
+    }
+    
+    // Latencies are recorded in one of several histograms, chosen by thread,
+    // so that threads recording at the same time rarely contend.
+    private static class Blitz {
+        private static final int STRIPE_COUNT = 16;
+        
+        public final CountDownLatch started = new CountDownLatch(1);
+        public final CountDownLatch finished;
+        protected final Thread submitter = Thread.currentThread();
+        private final LatencyHistogram[] latencies = new LatencyHistogram[STRIPE_COUNT];
+        private final VirtualThreadMonitor monitor;
+        private VirtualThreadUsage virtualThreadUsage = null;
+        private long startTime;
+        
+        public Blitz(int taskCount, VirtualThreadMonitor monitor) {
+            this.finished = new CountDownLatch(taskCount);
+            this.monitor = monitor;
+            for (int i = 0; i < STRIPE_COUNT; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+        
+        public void startMonitoring() {
+            if (monitor != null) {
+                monitor.start();
+            }
+        }
+        
+        // Stopping the monitor releases the event stream it reads, so a 
+        // blitz that fails or times out must stop it too.
+        public void stopMonitoring() {
+            if (monitor != null && virtualThreadUsage == null) {
+                virtualThreadUsage = monitor.stop();
+            }
+        }
+        
+        // Only called on the submitting thread.
+        public void start() {
+            if (started.getCount() > 0) {
+                startTime = System.nanoTime();
+                started.countDown();
+            }
+        }
+        
+        // A task that the executor runs on the submitting thread cannot wait 
+        // for the rest to be submitted, so it starts the blitz early instead.
+        public void awaitStart() throws InterruptedException {
+            if (Thread.currentThread() == submitter) {
+                start();
+            }
+            else {
+                started.await();
+            }
+        }
+        
+        public void abandon() {
+            start();
+        }
+        
+        public void perform(Runnable action) {
+            long actionStart = System.nanoTime();
+            try {
+                action.run();
+            }
+            finally {
+                record(System.nanoTime() - actionStart);
+            }
+        }
+        
+        protected void record(long latency) {
+            latencies[(int)(Thread.currentThread().getId() % STRIPE_COUNT)].record(latency);
+        }
+        
+        public BlitzResult result() {
+            return resultOver(System.nanoTime() - startTime);
+        }
+        
+        protected BlitzResult resultOver(long elapsed) {
+            LatencyHistogram total = new LatencyHistogram();
+            for (LatencyHistogram stripe : latencies) {
+                total.add(stripe);
+            }
+            stopMonitoring();
+            return new BlitzResult(total.count(), elapsed, total, virtualThreadUsage);
+        }
+    }
+    
+    private static class TimedBlitz extends Blitz {
+        private final CountDownLatch stopRequested = new CountDownLatch(1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>(null);
+        private volatile boolean measuring = false;
+        private volatile boolean stopped = false;
+        private long measurementStart;
+        private long measurementEnd;
+        
+        public TimedBlitz(int threadCount, VirtualThreadMonitor monitor) {
+            super(threadCount, monitor);
+        }
+        
+        // The submitting thread stops the timed actions, so it cannot perform them.
+        @Override
+        public void awaitStart() throws InterruptedException {
+            if (Thread.currentThread() == submitter) {
+                throw new RejectedExecutionException(
+                    "a timed blitz cannot perform actions on the thread that starts it");
+            }
+            super.awaitStart();
+        }
+        
+        @Override
+        public void abandon() {
+            stopped = true;
+            super.abandon();
+        }
+        
+        // The first failure is kept to be rethrown on the submitting thread, 
+        // rather than being lost in the executor's uncaught exception handler.
+        public void performUntilStopped(Runnable action) {
+            try {
+                while (!stopped) {
+                    boolean measured = measuring;
+                    long actionStart = System.nanoTime();
+                    action.run();
+                    if (measured) {
+                        record(System.nanoTime() - actionStart);
+                    }
+                }
+            }
+            catch (RuntimeException e) {
+                fail(e);
+            }
+            catch (Error e) {
+                fail(e);
+            }
+        }
+        
+        private void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+            stopRequested.countDown();
+        }
+        
+        public void rethrowFailure() {
+            Throwable t = failure.get();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException)t;
+            }
+            else if (t instanceof Error) {
+                throw (Error)t;
+            }
+        }
+        
+        public void measureAfter(long warmUpNanos, long measurementNanos) throws InterruptedException {
+            measurementStart = System.nanoTime();
+            if (!stopRequested.await(warmUpNanos, NANOSECONDS)) {
+                startMonitoring();
+                measuring = true;
+                measurementStart = System.nanoTime();
+                stopRequested.await(measurementNanos, NANOSECONDS);
+            }
+            stopped = true;
+            measurementEnd = System.nanoTime();
+        }
+        
+        @Override
+        public BlitzResult result() {
+            return resultOver(measurementEnd - measurementStart);
+        }
+    }
+
     public void shutdown() {
         executorService.shutdown();
     }
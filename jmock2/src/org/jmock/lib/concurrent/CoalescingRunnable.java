@@ -0,0 +1,20 @@
+package org.jmock.lib.concurrent;
+
+
+/**
+ * A periodic command that can handle several of its firings in one call.
+ * 
+ * When a {@link DeterministicScheduler} advances its clock past several periods of
+ * a repeating CoalescingRunnable, it calls {@link #run(int)} once, at the time of 
+ * the first of those firings, instead of calling {@link #run()} once per period.  
+ * The firings are therefore not interleaved with other commands scheduled during 
+ * those periods.
+ */
+public interface CoalescingRunnable extends Runnable {
+    /**
+     * Performs <var>firingCount</var> firings of the command at once.
+     * 
+     * @param firingCount the number of firings, at least 1.
+     */
+    void run(int firingCount);
+}
@@ -0,0 +1,63 @@
+package org.jmock.lib.concurrent;
+
+import org.hamcrest.Description;
+import org.jmock.api.InvocationHistory;
+import org.jmock.api.Invokable;
+import org.jmock.api.RecordedInvocation;
+import org.jmock.api.ThreadingPolicy;
+
+
+/**
+ * A ThreadingPolicy that lets many threads invoke mock objects at the same
+ * time, without serialising their invocations through a lock.  This is useful
+ * for stress tests that invoke stubbed collaborators from many threads.
+ * 
+ * <p>Each invocation is counted against its expectation atomically, so an
+ * expectation is never invoked more times than its cardinality allows.  Other
+ * constraints, such as sequences and states, are checked when the invocation
+ * is dispatched but not atomically with it, and actions are invoked 
+ * concurrently, so they must be thread-safe themselves.</p>
+ * 
+ * <p>All expectations must be defined before the mock objects are passed to
+ * other threads.  The Mockery's invocation history is accessed under a lock,
+ * unless it is a {@link PerThreadInvocationHistory}, which threads append to
+ * without contending:</p>
+ * 
+ * <pre>
+ * Mockery context = new Mockery() {{
+ *     setThreadingPolicy(new ConcurrentPolicy());
+ *     setInvocationHistory(new PerThreadInvocationHistory());
+ * }};
+ * </pre>
+ * 
+ * <p>Use a {@link Synchroniser} if the test needs to wait for the state of
+ * the test to change or if the actions are not thread-safe.</p>
+ */
+public class ConcurrentPolicy implements ThreadingPolicy {
+    public Invokable synchroniseAccessTo(Invokable mockObject) {
+        return mockObject;
+    }
+    
+    public InvocationHistory synchroniseAccessTo(InvocationHistory history) {
+        if (history instanceof PerThreadInvocationHistory) {
+            return history;
+        }
+        return new LockedInvocationHistory(history);
+    }
+    
+    private static class LockedInvocationHistory implements InvocationHistory {
+        private final InvocationHistory history;
+        
+        public LockedInvocationHistory(InvocationHistory history) {
+            this.history = history;
+        }
+        
+        public synchronized void record(RecordedInvocation invocation) {
+            history.record(invocation);
+        }
+        
+        public synchronized void describeTo(Description description) {
+            history.describeTo(description);
+        }
+    }
+}
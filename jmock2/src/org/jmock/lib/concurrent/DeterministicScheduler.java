@@ -13,6 +13,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.jmock.internal.StatePredicate;
 import org.jmock.lib.concurrent.internal.DeltaQueue;
 
 
@@ -23,10 +24,38 @@ import org.jmock.lib.concurrent.internal.DeltaQueue;
  * as {@link Executor}s or {@link ExecutorService}s if you just want to control background execution 
  * and don't need to schedule commands, but it may be simpler to use a {@link DeterministicExecutor}.
  * 
+ * The scheduler has its own virtual clock, measured in nanoseconds, that starts at zero
+ * and only moves forward when the scheduler is {@link #tick(long, TimeUnit) ticked} or
+ * {@link #advanceToNextEvent() advanced}.  Advancing jumps the clock straight to the
+ * next command that is due, so a simulation runs in time proportional to the number 
+ * of commands it executes, not to the virtual time that passes.  Repeating commands 
+ * that are {@link CoalescingRunnable}s are run once for all the periods that pass 
+ * during a single tick or {@link #runUntil(StatePredicate, long, TimeUnit) runUntil}.
+ * 
+ * The scheduler also moves a {@link VirtualClock} forward by the same amount, so that
+ * code under test can read the simulated time through its own clock interface.
+ * 
  * @author nat
  */
 public class DeterministicScheduler implements ScheduledExecutorService {
+    private static final long NO_HORIZON = Long.MIN_VALUE;
+    
     private final DeltaQueue<ScheduledTask<?>> deltaQueue = new DeltaQueue<ScheduledTask<?>>();
+    private final VirtualClock clock;
+    private long horizon = NO_HORIZON;
+    
+    public DeterministicScheduler() {
+        this(new VirtualClock());
+    }
+    
+    /**
+     * Creates a scheduler that moves the given clock forward as time passes, so
+     * that code under test that reads the clock sees the time at which its
+     * commands are executed.
+     */
+    public DeterministicScheduler(VirtualClock clock) {
+        this.clock = clock;
+    }
     
     /**
      * Runs time forwards by a given duration, executing any commands scheduled for
@@ -40,11 +69,90 @@ public class DeterministicScheduler implements ScheduledExecutorService {
     public void tick(long duration, TimeUnit timeUnit) {
         long remaining = toTicks(duration, timeUnit);
         
-        do {
-            remaining = deltaQueue.tick(remaining);
+        horizon = later(remaining);
+        try {
+            do {
+                remaining = advanceClock(remaining);
+                runUntilIdle();
+                
+            } while (remaining > 0);
+        }
+        finally {
+            horizon = NO_HORIZON;
+        }
+    }
+    
+    /**
+     * Runs time forwards to when the next scheduled command is due and executes 
+     * all the commands that are due at that time, and any background tasks they
+     * spawn.
+     * 
+     * @return true if a command was executed, false if no commands are scheduled.
+     */
+    public boolean advanceToNextEvent() {
+        if (deltaQueue.isEmpty()) {
+            return false;
+        }
+        
+        advanceClock(deltaQueue.delay());
+        runUntilIdle();
+        return true;
+    }
+    
+    /**
+     * Runs time forwards from one scheduled command to the next until a 
+     * StatePredicate becomes active or until a maximum amount of time has passed.
+     * The predicate is checked after each point in time at which commands are
+     * executed.
+     * 
+     * @param p the StatePredicate to wait for
+     * @param maxDuration the maximum time to run forwards
+     * @param timeUnit the unit of maxDuration
+     * @return true if the predicate became active, false if it was still not active
+     *         when the time ran out.
+     */
+    public boolean runUntil(StatePredicate p, long maxDuration, TimeUnit timeUnit) {
+        long deadline = later(toTicks(maxDuration, timeUnit));
+        
+        horizon = deadline;
+        try {
             runUntilIdle();
             
-        } while (deltaQueue.isNotEmpty() && remaining > 0);
+            while (!p.isActive()) {
+                if (deltaQueue.isEmpty() || deltaQueue.delay() > deadline - now()) {
+                    advanceClock(deadline - now());
+                    return p.isActive();
+                }
+                
+                advanceClock(deltaQueue.delay());
+                runUntilIdle();
+            }
+            return true;
+        }
+        finally {
+            horizon = NO_HORIZON;
+        }
+    }
+    
+    /**
+     * The clock that the scheduler moves forward as time passes.
+     */
+    public VirtualClock clock() {
+        return clock;
+    }
+    
+    /**
+     * The time on the scheduler's virtual clock, in nanoseconds.
+     */
+    public long now() {
+        return deltaQueue.now();
+    }
+    
+    /**
+     * The time on the scheduler's virtual clock, in the given unit.
+     */
+    public long currentTime(TimeUnit unit) {
+        return unit.convert(now(), TimeUnit.NANOSECONDS);
     }
     
     /**
@@ -63,10 +171,18 @@ public class DeterministicScheduler implements ScheduledExecutorService {
     public void runNextPendingCommand() {
         ScheduledTask<?> scheduledTask = deltaQueue.pop();
         
-        scheduledTask.run();
-        
-        if (scheduledTask.repeats()) {
-            deltaQueue.add(scheduledTask.repeatDelay, scheduledTask);
+        if (scheduledTask.coalesces()) {
+            int firingCount = firingsBeforeHorizon(scheduledTask.repeatDelay);
+            
+            scheduledTask.run(firingCount);
+            enqueue(scheduledTask, periods(firingCount, scheduledTask.repeatDelay));
+        }
+        else {
+            scheduledTask.run();
+            
+            if (scheduledTask.repeats()) {
+                enqueue(scheduledTask, scheduledTask.repeatDelay);
+            }
         }
     }
     
@@ -86,13 +202,13 @@ public class DeterministicScheduler implements ScheduledExecutorService {
     
     public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
         ScheduledTask<Void> task = new ScheduledTask<Void>(command);
-        deltaQueue.add(toTicks(delay, unit), task);
+        enqueue(task, toTicks(delay, unit));
         return task;
     }
     
     public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
         ScheduledTask<V> task = new ScheduledTask<V>(callable);
-        deltaQueue.add(toTicks(delay, unit), task);
+        enqueue(task, toTicks(delay, unit));
         return task;
     }
     
@@ -102,10 +218,44 @@ public class DeterministicScheduler implements ScheduledExecutorService {
     
     public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
         ScheduledTask<Object> task = new ScheduledTask<Object>(toTicks(delay, unit), command);
-        deltaQueue.add(toTicks(initialDelay, unit), task);
+        enqueue(task, toTicks(initialDelay, unit));
         return task;
     }
     
+    private long advanceClock(long duration) {
+        long before = deltaQueue.now();
+        long leftover = deltaQueue.tick(duration);
+        long elapsed = deltaQueue.now() - before;
+        if (elapsed > 0) {
+            clock.advance(elapsed, TimeUnit.NANOSECONDS);
+        }
+        return leftover;
+    }
+    
+    private void enqueue(ScheduledTask<?> task, long delay) {
+        task.dueTime = later(delay);
+        deltaQueue.add(delay, task);
+    }
+    
+    private long later(long delay) {
+        return (delay > Long.MAX_VALUE - now()) ? Long.MAX_VALUE : now() + delay;
+    }
+    
+    // The number of firings of a command repeating with the given period,
+    // starting now, that fall within the tick or runUntil in progress.
+    private int firingsBeforeHorizon(long period) {
+        if (horizon == NO_HORIZON || horizon <= now()) {
+            return 1;
+        }
+        
+        return (int)Math.min(Integer.MAX_VALUE, 1 + (horizon - now())/period);
+    }
+    
+    private static long periods(int count, long period) {
+        long allButLast = (count - 1) * period;
+        return (allButLast > Long.MAX_VALUE - period) ? Long.MAX_VALUE : allButLast + period;
+    }
+    
     public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
         throw blockingOperationsNotSupported();
     }
@@ -181,14 +331,17 @@ public class DeterministicScheduler implements ScheduledExecutorService {
     private final class ScheduledTask<T> implements ScheduledFuture<T>, Runnable {
         public final long repeatDelay;
         public final Callable<T> command;
+        private final CoalescingRunnable coalescingCommand;
         private boolean isCancelled = false;
         private boolean isDone = false;
         private T futureResult;
         private Exception failure = null;
+        private long dueTime;
         
         public ScheduledTask(Callable<T> command) {
             this.repeatDelay = -1;
             this.command = command;
+            this.coalescingCommand = null;
         }
         
         public ScheduledTask(Runnable command) {
@@ -198,6 +351,7 @@ public class DeterministicScheduler implements ScheduledExecutorService {
         public ScheduledTask(long repeatDelay, Runnable command) {
             this.repeatDelay = repeatDelay;
             this.command = new CallableRunnableAdapter<T>(command, null); 
+            this.coalescingCommand = (command instanceof CoalescingRunnable) ? (CoalescingRunnable)command : null;
         }
         
         @Override
@@ -208,13 +362,22 @@ public class DeterministicScheduler implements ScheduledExecutorService {
         public boolean repeats() {
             return repeatDelay >= 0;
         }
+        
+        public boolean coalesces() {
+            return repeatDelay > 0 && coalescingCommand != null;
+        }
 
         public long getDelay(TimeUnit unit) {
-            throw new UnsupportedOperationException("not supported");
+            return unit.convert(dueTime - now(), TimeUnit.NANOSECONDS);
         }
 
         public int compareTo(Delayed o) {
-            throw new UnsupportedOperationException("not supported");
+            if (o == this) {
+                return 0;
+            }
+            
+            long difference = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+            return (difference < 0) ? -1 : (difference > 0) ? 1 : 0;
         }
 
         public boolean cancel(boolean mayInterruptIfRunning) {
@@ -255,10 +418,20 @@ public class DeterministicScheduler implements ScheduledExecutorService {
             }
             isDone = true;
         }
+        
+        public void run(int firingCount) {
+            try {
+                coalescingCommand.run(firingCount);
+            }
+            catch (RuntimeException e) {
+                failure = e;
+            }
+            isDone = true;
+        }
     }
 
     private long toTicks(long duration, TimeUnit timeUnit) {
-        return TimeUnit.MILLISECONDS.convert(duration, timeUnit);
+        return TimeUnit.NANOSECONDS.convert(duration, timeUnit);
     }
     
     private UnsupportedSynchronousOperationException blockingOperationsNotSupported() {
@@ -0,0 +1,170 @@
+package org.jmock.lib.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hamcrest.Description;
+import org.hamcrest.SelfDescribing;
+import org.jmock.api.InvocationHistory;
+import org.jmock.api.RecordedInvocation;
+
+/**
+ * Records every invocation in a log that belongs to the thread that 
+ * performed it, so that threads recording invocations do not contend with
+ * each other for a lock.  
+ * 
+ * Each invocation is stamped with a number from a sequence shared by all
+ * threads.  The logs are only merged into that order when the history is 
+ * described, so failure messages report the exact interleaving of the 
+ * invocations and the thread that performed each one.
+ * 
+ * @see ConcurrentPolicy
+ */
+public class PerThreadInvocationHistory implements InvocationHistory {
+    private final AtomicLong sequence = new AtomicLong(0);
+    private final ConcurrentLinkedQueue<ThreadLog> logs = new ConcurrentLinkedQueue<ThreadLog>();
+    private final ThreadLocal<ThreadLog> currentLog = new ThreadLocal<ThreadLog>() {
+        @Override
+        protected ThreadLog initialValue() {
+            ThreadLog log = new ThreadLog(Thread.currentThread().getName());
+            logs.add(log);
+            return log;
+        }
+    };
+    
+    public void record(RecordedInvocation invocation) {
+        currentLog.get().add(sequence.getAndIncrement(), invocation);
+    }
+    
+    public void describeTo(Description description) {
+        List<Entry> entries = mergedEntries();
+        
+        if (entries.isEmpty()) {
+            description.appendText(" nothing!");
+        }
+        else {
+            description.appendList("\n  ", "\n  ", "\n", entries);
+        }
+    }
+    
+    private List<Entry> mergedEntries() {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<Cursor>();
+        for (ThreadLog log : logs) {
+            Cursor cursor = new Cursor(log);
+            if (cursor.hasEntry()) cursors.add(cursor);
+        }
+        
+        List<Entry> entries = new ArrayList<Entry>();
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            entries.add(cursor.entry());
+            cursor.advance();
+            if (cursor.hasEntry()) cursors.add(cursor);
+        }
+        return entries;
+    }
+    
+    // A log is only appended to by the thread that owns it.  Each chunk
+    // publishes the entries written to it by a volatile write of its size,
+    // so other threads can read a log while its owner appends to it.
+    // The first chunk is small, because many threads only perform a few 
+    // invocations, and each chunk is twice as big as the last, up to a limit.
+    private static class ThreadLog {
+        public final String threadName;
+        public final Chunk first = new Chunk(Chunk.MIN_CAPACITY);
+        private Chunk last = first;
+        
+        public ThreadLog(String threadName) {
+            this.threadName = threadName;
+        }
+        
+        public void add(long sequenceNumber, RecordedInvocation invocation) {
+            if (last.size == last.capacity()) {
+                Chunk next = new Chunk(Math.min(last.capacity() * 2, Chunk.MAX_CAPACITY));
+                last.next = next;
+                last = next;
+            }
+            
+            int i = last.size;
+            last.sequenceNumbers[i] = sequenceNumber;
+            last.invocations[i] = invocation;
+            last.size = i + 1;
+        }
+    }
+    
+    private static class Chunk {
+        public static final int MIN_CAPACITY = 4;
+        public static final int MAX_CAPACITY = 256;
+        
+        public final long[] sequenceNumbers;
+        public final RecordedInvocation[] invocations;
+        public volatile int size = 0;
+        public volatile Chunk next = null;
+        
+        public Chunk(int capacity) {
+            this.sequenceNumbers = new long[capacity];
+            this.invocations = new RecordedInvocation[capacity];
+        }
+        
+        public int capacity() {
+            return invocations.length;
+        }
+    }
+    
+    private static class Cursor implements Comparable<Cursor> {
+        private final ThreadLog log;
+        private Chunk chunk;
+        private int size;
+        private int index = 0;
+        
+        public Cursor(ThreadLog log) {
+            this.log = log;
+            this.chunk = log.first;
+            this.size = chunk.size;
+        }
+        
+        public boolean hasEntry() {
+            if (index == size && size == chunk.capacity() && chunk.next != null) {
+                chunk = chunk.next;
+                size = chunk.size;
+                index = 0;
+            }
+            return index < size;
+        }
+        
+        public long sequenceNumber() {
+            return chunk.sequenceNumbers[index];
+        }
+        
+        public Entry entry() {
+            return new Entry(log.threadName, chunk.invocations[index]);
+        }
+        
+        public void advance() {
+            index++;
+        }
+        
+        public int compareTo(Cursor other) {
+            long a = sequenceNumber(), b = other.sequenceNumber();
+            return a < b ? -1 : (a == b ? 0 : 1);
+        }
+    }
+    
+    private static class Entry implements SelfDescribing {
+        private final String threadName;
+        private final RecordedInvocation invocation;
+        
+        public Entry(String threadName, RecordedInvocation invocation) {
+            this.threadName = threadName;
+            this.invocation = invocation;
+        }
+        
+        public void describeTo(Description description) {
+            description.appendText(threadName).appendText(": ");
+            invocation.describeTo(description);
+        }
+    }
+}
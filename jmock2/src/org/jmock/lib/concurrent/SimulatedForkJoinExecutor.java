@@ -0,0 +1,270 @@
+package org.jmock.lib.concurrent;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Simulates fork/join computations on the thread that calls {@link #invoke(Task) invoke},
+ * running forked subtasks in a predictable order.  This is useful for testing how
+ * an algorithm splits work between parallel tasks without having to run it in parallel.
+ *
+ * Computations are written as subclasses of this class's own {@link Task}, which has 
+ * the same <code>compute</code>, <code>fork</code>, <code>join</code> and 
+ * <code>invoke</code> protocol as a recursive fork/join task.  The executor cannot run
+ * the JDK's fork/join tasks or replace a fork/join pool: code written against those
+ * must be adapted to a Task to be tested with it.
+ *
+ * A forked task is not run until a task is joined, at which point the executor runs 
+ * pending tasks, in its {@link Order}, until the joined task is done.
+ *
+ * The executor counts the tasks created at each level of the computation: the task
+ * passed to <code>invoke</code> is at level 0, and the tasks it forks or invokes are
+ * at level 1, and so on.
+ */
+public class SimulatedForkJoinExecutor {
+    /**
+     * The order in which pending forked tasks are run.
+     */
+    public enum Order {
+        /** Most recently forked first, as a fork/join worker runs its own tasks. */
+        LIFO,
+        /** Least recently forked first, as other workers steal tasks. */
+        FIFO,
+        /** In a pseudo-random order determined by a seed. */
+        RANDOM
+    }
+
+    private static final ThreadLocal<SimulatedForkJoinExecutor> currentExecutor =
+        new ThreadLocal<SimulatedForkJoinExecutor>();
+
+    private final Order order;
+    private final Random random;
+    private final LinkedList<Task<?>> pendingTasks = new LinkedList<Task<?>>();
+    private final List<Integer> taskCountsPerLevel = new ArrayList<Integer>();
+    private Task<?> currentTask = null;
+
+    public SimulatedForkJoinExecutor() {
+        this(Order.LIFO);
+    }
+
+    public SimulatedForkJoinExecutor(Order order) {
+        this(order, 0L);
+    }
+
+    /**
+     * @param randomSeed
+     *     The seed that determines the order of pending tasks if the order is
+     *     {@link Order#RANDOM RANDOM}.
+     */
+    public SimulatedForkJoinExecutor(Order order, long randomSeed) {
+        this.order = order;
+        this.random = new Random(randomSeed);
+    }
+
+    /**
+     * Runs a task and any subtasks it forks to completion, and returns its result.
+     * Forked subtasks that are never joined are run after the task itself.  If the
+     * computation fails with an Error, the subtasks it left pending are discarded.
+     *
+     * @throws RuntimeException if the task threw it.
+     */
+    public <V> V invoke(Task<V> task) {
+        SimulatedForkJoinExecutor previousExecutor = currentExecutor.get();
+        currentExecutor.set(this);
+        try {
+            task.start(this, 0);
+            task.run();
+            runUntilIdle();
+        }
+        finally {
+            pendingTasks.clear();
+            currentExecutor.set(previousExecutor);
+        }
+
+        return task.result();
+    }
+
+    /**
+     * Returns whether this executor is idle -- has no forked tasks waiting to be run.
+     */
+    public boolean isIdle() {
+        return pendingTasks.isEmpty();
+    }
+
+    /**
+     * The number of tasks created at each level of the computations invoked so far,
+     * starting at level 0.
+     */
+    public List<Integer> taskCountsPerLevel() {
+        return new ArrayList<Integer>(taskCountsPerLevel);
+    }
+
+    /**
+     * The number of tasks created at all levels of the computations invoked so far.
+     */
+    public int taskCount() {
+        int count = 0;
+        for (int levelCount : taskCountsPerLevel) {
+            count += levelCount;
+        }
+        return count;
+    }
+
+    private void runUntilIdle() {
+        while (!isIdle()) {
+            runNextPendingTask();
+        }
+    }
+
+    private void runNextPendingTask() {
+        Task<?> task;
+        switch (order) {
+        case FIFO:
+            task = pendingTasks.removeFirst();
+            break;
+        case RANDOM:
+            task = pendingTasks.remove(random.nextInt(pendingTasks.size()));
+            break;
+        default:
+            task = pendingTasks.removeLast();
+            break;
+        }
+
+        task.run();
+    }
+
+    private int levelOfCurrentTask() {
+        return currentTask == null ? -1 : currentTask.level;
+    }
+
+    private void countTaskAt(int level) {
+        while (taskCountsPerLevel.size() <= level) {
+            taskCountsPerLevel.add(0);
+        }
+        taskCountsPerLevel.set(level, taskCountsPerLevel.get(level) + 1);
+    }
+
+    /**
+     * A task that computes its result by forking and joining subtasks on a
+     * SimulatedForkJoinExecutor.
+     *
+     * @param <V> the type of the task's result
+     */
+    public static abstract class Task<V> {
+        private SimulatedForkJoinExecutor executor = null;
+        private int level;
+        private boolean isDone = false;
+        private V result;
+        private RuntimeException failure = null;
+
+        protected abstract V compute();
+
+        /**
+         * Arranges for this task to be run by the executor running the current task.
+         */
+        public final Task<V> fork() {
+            SimulatedForkJoinExecutor current = currentExecutor();
+            start(current, current.levelOfCurrentTask() + 1);
+            current.pendingTasks.add(this);
+            return this;
+        }
+
+        /**
+         * Returns the result of this task, running pending tasks until it is done.
+         *
+         * @throws RuntimeException if the task threw it.
+         * @throws IllegalStateException if the task has not been forked.
+         */
+        public final V join() {
+            if (executor == null) {
+                throw new IllegalStateException("cannot join a task that has not been forked");
+            }
+
+            while (!isDone) {
+                if (executor.isIdle()) {
+                    throw new IllegalStateException("cannot join a task that is still computing");
+                }
+                executor.runNextPendingTask();
+            }
+
+            return result();
+        }
+
+        /**
+         * Runs this task immediately, as a subtask of the current task, and
+         * returns its result.
+         */
+        public final V invoke() {
+            SimulatedForkJoinExecutor current = currentExecutor();
+            start(current, current.levelOfCurrentTask() + 1);
+            run();
+            return result();
+        }
+
+        /**
+         * Forks <var>b</var>, invokes <var>a</var> and then joins <var>b</var>.
+         */
+        public static void invokeAll(Task<?> a, Task<?> b) {
+            b.fork();
+            a.invoke();
+            b.join();
+        }
+
+        public final boolean isDone() {
+            return isDone;
+        }
+
+        /**
+         * The level of this task in the computation: 0 for the task passed to
+         * {@link SimulatedForkJoinExecutor#invoke(Task)}, one more than the level
+         * of the task that forked or invoked it for any other task.
+         */
+        public final int level() {
+            return level;
+        }
+
+        private void start(SimulatedForkJoinExecutor executor, int level) {
+            if (this.executor != null) {
+                throw new IllegalStateException("task has already been started");
+            }
+
+            this.executor = executor;
+            this.level = level;
+            executor.countTaskAt(level);
+        }
+
+        private void run() {
+            Task<?> parent = executor.currentTask;
+            executor.currentTask = this;
+            try {
+                result = compute();
+            }
+            catch (RuntimeException e) {
+                failure = e;
+            }
+            finally {
+                executor.currentTask = parent;
+                isDone = true;
+            }
+        }
+
+        private V result() {
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+
+        private static SimulatedForkJoinExecutor currentExecutor() {
+            SimulatedForkJoinExecutor current = SimulatedForkJoinExecutor.currentExecutor.get();
+            if (current == null) {
+                throw new IllegalStateException("tasks can only be forked or invoked by tasks run by a "
+                                                + SimulatedForkJoinExecutor.class.getSimpleName());
+            }
+            return current;
+        }
+    }
+}
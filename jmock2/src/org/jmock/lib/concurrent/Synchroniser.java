@@ -2,11 +2,20 @@ package org.jmock.lib.concurrent;
 
 import static org.hamcrest.StringDescription.asString;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.jmock.api.Invocation;
+import org.jmock.api.InvocationHistory;
 import org.jmock.api.Invokable;
 import org.jmock.api.ThreadingPolicy;
+import org.jmock.internal.StateChangeListener;
+import org.jmock.internal.StateMachine;
+import org.jmock.internal.StateMachinePredicate;
 import org.jmock.internal.StatePredicate;
 import org.jmock.lib.concurrent.internal.FixedTimeout;
 import org.jmock.lib.concurrent.internal.InfiniteTimeout;
@@ -18,10 +27,21 @@ import org.junit.Assert;
  * A ThreadingPolicy that makes the Mockery thread-safe and
  * helps tests synchronise with background threads.
  * 
+ * A thread waiting for the state of a state machine is only woken when that
+ * state machine changes state.  A thread waiting for any other StatePredicate
+ * is woken whenever a mock object has been invoked.
+ * 
  * @author Nat Pryce
  */
 public class Synchroniser implements ThreadingPolicy {
-    private final Object sync = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition invocationFinished = lock.newCondition();
+    private final Map<StateMachine, Condition> stateChanges = new IdentityHashMap<StateMachine, Condition>();
+    private final StateChangeListener stateChangeSignaller = new StateChangeListener() {
+        public void stateChanged(StateMachine stateMachine) {
+            signalStateChangeOf(stateMachine);
+        }
+    };
     private Error firstError = null;
     
     
@@ -50,10 +70,12 @@ public class Synchroniser implements ThreadingPolicy {
     }
     
     private void waitUntil(StatePredicate p, Timeout timeout) throws InterruptedException {
-        synchronized(sync) {
+        lock.lock();
+        try {
+            Condition change = conditionChangedBy(p);
             while (!p.isActive()) {
                 try {
-                    sync.wait(timeout.timeRemaining());
+                    await(change, timeout.timeRemaining());
                 }
                 catch (TimeoutException e) {
                     if (firstError != null) {
@@ -65,7 +87,43 @@ public class Synchroniser implements ThreadingPolicy {
                 }
             }
         }
+        finally {
+            lock.unlock();
+        }
+    }
+    
+    private static void await(Condition condition, long timeoutMs) throws InterruptedException {
+        if (timeoutMs == 0L) {
+            condition.await();
+        }
+        else {
+            condition.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private Condition conditionChangedBy(StatePredicate p) {
+        if (!(p instanceof StateMachinePredicate)) {
+            return invocationFinished;
+        }
         
+        StateMachine stateMachine = ((StateMachinePredicate)p).stateMachine();
+        Condition stateChange = stateChanges.get(stateMachine);
+        if (stateChange == null) {
+            stateChange = lock.newCondition();
+            stateChanges.put(stateMachine, stateChange);
+            stateMachine.addStateChangeListener(stateChangeSignaller);
+        }
+        return stateChange;
+    }
+    
+    private void signalStateChangeOf(StateMachine stateMachine) {
+        lock.lock();
+        try {
+            stateChanges.get(stateMachine).signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
     }
     
     public Invokable synchroniseAccessTo(final Invokable mockObject) {
@@ -76,20 +134,25 @@ public class Synchroniser implements ThreadingPolicy {
         };
     }
 
+    // Invocations are recorded while the lock is held.
+    public InvocationHistory synchroniseAccessTo(InvocationHistory history) {
+        return history;
+    }
+
     private Object synchroniseInvocation(Invokable mockObject, Invocation invocation) throws Throwable {
-        synchronized (sync) {
-            try {
-                return mockObject.invoke(invocation);
-            }
-            catch (Error e) {
-                if (firstError == null) {
-                    firstError = e;
-                }
-                throw e;
-            }
-            finally {
-                sync.notifyAll();
+        lock.lock();
+        try {
+            return mockObject.invoke(invocation);
+        }
+        catch (Error e) {
+            if (firstError == null) {
+                firstError = e;
             }
+            throw e;
+        }
+        finally {
+            invocationFinished.signalAll();
+            lock.unlock();
         }
     }
 }
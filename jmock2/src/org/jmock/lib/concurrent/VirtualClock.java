@@ -0,0 +1,126 @@
+package org.jmock.lib.concurrent;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hamcrest.Description;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+
+
+/**
+ * A clock that shows simulated time.  The clock only moves forward when
+ * it is {@link #advance(long, TimeUnit) advanced}, or when a
+ * {@link DeterministicScheduler} that uses it is ticked, so that code under
+ * test reads the same time that fires its scheduled commands.
+ *
+ * Mocked time sources can return the clock's time with the actions
+ * {@link #returnNanoTime()}, {@link #returnCurrentTimeMillis()} and
+ * {@link #returnCurrentDate()}, which read the clock each time they are
+ * invoked.
+ */
+public class VirtualClock {
+    private final long startTimeMillis;
+    private final AtomicLong elapsedNanos = new AtomicLong(0L);
+
+    /**
+     * Creates a clock that starts at the epoch, 00:00:00 GMT, January 1, 1970.
+     */
+    public VirtualClock() {
+        this(0L);
+    }
+
+    /**
+     * Creates a clock that starts at the given wall-clock time.
+     *
+     * @param startTimeMillis the starting time, in milliseconds since the epoch.
+     */
+    public VirtualClock(long startTimeMillis) {
+        this.startTimeMillis = startTimeMillis;
+    }
+
+    /**
+     * Moves the clock forward.  This does not run commands scheduled on a
+     * DeterministicScheduler: tick the scheduler instead to do that.
+     * 
+     * Several threads can advance the clock at the same time.
+     */
+    public void advance(long duration, TimeUnit unit) {
+        long nanos = unit.toNanos(duration);
+        if (nanos < 0) {
+            throw new IllegalArgumentException("cannot move a clock backwards");
+        }
+        
+        long before, after;
+        do {
+            before = elapsedNanos.get();
+            after = (nanos > Long.MAX_VALUE - before) ? Long.MAX_VALUE : before + nanos;
+        } while (!elapsedNanos.compareAndSet(before, after));
+    }
+
+    /**
+     * The simulated equivalent of {@link System#nanoTime()}: the time, in
+     * nanoseconds, that the clock has been advanced since it was created.
+     */
+    public long nanoTime() {
+        return elapsedNanos.get();
+    }
+
+    /**
+     * The simulated equivalent of {@link System#currentTimeMillis()}.
+     */
+    public long currentTimeMillis() {
+        return startTimeMillis + TimeUnit.NANOSECONDS.toMillis(elapsedNanos.get());
+    }
+
+    public Date currentDate() {
+        return new Date(currentTimeMillis());
+    }
+
+    public Action returnNanoTime() {
+        return new ReturnTimeAction("nano time") {
+            @Override
+            protected Object time() {
+                return nanoTime();
+            }
+        };
+    }
+
+    public Action returnCurrentTimeMillis() {
+        return new ReturnTimeAction("current time millis") {
+            @Override
+            protected Object time() {
+                return currentTimeMillis();
+            }
+        };
+    }
+
+    public Action returnCurrentDate() {
+        return new ReturnTimeAction("current date") {
+            @Override
+            protected Object time() {
+                return currentDate();
+            }
+        };
+    }
+
+    private static abstract class ReturnTimeAction implements Action {
+        private final String timeDescription;
+
+        public ReturnTimeAction(String timeDescription) {
+            this.timeDescription = timeDescription;
+        }
+
+        public Object invoke(Invocation invocation) throws Throwable {
+            return time();
+        }
+
+        protected abstract Object time();
+
+        public void describeTo(Description description) {
+            description.appendText("returns the virtual clock's ")
+                       .appendText(timeDescription);
+        }
+    }
+}
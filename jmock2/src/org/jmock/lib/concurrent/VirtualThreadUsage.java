@@ -0,0 +1,59 @@
+package org.jmock.lib.concurrent;
+
+
+/**
+ * How a {@link Blitzer} that runs its actions on virtual threads used the
+ * JDK's virtual thread scheduler, as far as the JDK reports it.
+ */
+public class VirtualThreadUsage {
+    private final long pinnedCount;
+    private final double carrierUtilisation;
+
+    /**
+     * @param pinnedCount
+     *     the number of times a virtual thread blocked while pinned to its
+     *     carrier thread, or a negative number if the JDK does not report it.
+     * @param carrierUtilisation
+     *     the proportion of the carrier threads' capacity that was used, or
+     *     {@link Double#NaN} if the JDK does not report it.
+     */
+    public VirtualThreadUsage(long pinnedCount, double carrierUtilisation) {
+        this.pinnedCount = pinnedCount;
+        this.carrierUtilisation = carrierUtilisation;
+    }
+
+    public boolean isPinningReported() {
+        return pinnedCount >= 0;
+    }
+
+    /**
+     * The number of times a virtual thread blocked while pinned to its carrier
+     * thread, for example by waiting while in a <code>synchronized</code> block.
+     * Pinning is reported for every virtual thread in the JVM, not only those
+     * of the Blitzer.
+     */
+    public long pinnedCount() {
+        return pinnedCount;
+    }
+
+    public boolean isCarrierUtilisationReported() {
+        return !Double.isNaN(carrierUtilisation);
+    }
+
+    /**
+     * The CPU time used by the carrier threads as a proportion of the
+     * time they could have used, between 0 and 1.
+     */
+    public double carrierUtilisation() {
+        return carrierUtilisation;
+    }
+
+    @Override
+    public String toString() {
+        return (isPinningReported() ? "pinned " + pinnedCount + " times" : "pinning not reported")
+             + ", "
+             + (isCarrierUtilisationReported()
+                    ? "carriers " + Math.round(carrierUtilisation*100) + "% utilised"
+                    : "carrier utilisation not reported");
+    }
+}
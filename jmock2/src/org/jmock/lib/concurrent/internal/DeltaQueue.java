@@ -1,134 +1,251 @@
 package org.jmock.lib.concurrent.internal;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
+
+/**
+ * A queue of elements that become due after a delay.
+ *
+ * Elements are held in a binary heap ordered by the time at which they
+ * become due and then by the order in which they were added, so that
+ * adding, popping and removing an element take O(log n) time.  Elements
+ * are removed by identity.
+ */
 public class DeltaQueue<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
     private static class Node<T> {
         public final T value;
-        public long delay;
-        public Node<T> next = null;
-        
-        public Node(T value, long nanos) {
+        public final long time;
+        public final long sequence;
+        public int index;
+        public Node<T> sameValue = null;
+
+        public Node(T value, long time, long sequence) {
             this.value = value;
-            this.delay = nanos;
+            this.time = time;
+            this.sequence = sequence;
+        }
+
+        public boolean isBefore(Node<T> that) {
+            return this.time < that.time
+                || (this.time == that.time && this.sequence < that.sequence);
         }
     }
-    
-    private Node<T> head = null;
-    
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Node<T>[] heap = new Node[INITIAL_CAPACITY];
+    private int size = 0;
+    private final Map<T, Node<T>> nodesByValue = new IdentityHashMap<T, Node<T>>();
+    private long now = 0L;
+    private long nextSequence = 0L;
+
     public boolean isEmpty() {
-        return head == null;
+        return size == 0;
     }
-    
+
     public boolean isNotEmpty() {
         return !isEmpty();
     }
-    
+
+    /**
+     * The total time ticked since the queue was created.
+     */
+    public long now() {
+        return now;
+    }
+
     public T next() {
-        return head.value;
+        return head().value;
     }
 
     public long delay() {
-        return head.delay;
+        return head().time - now;
     }
-    
+
+    /**
+     * Adds an element that becomes due after <var>delay</var>.  An element 
+     * added with a negative delay is due immediately.
+     */
     public void add(long delay, T value) {
-        Node<T> newNode = new Node<T>(value, delay);
-        
-        Node<T> prev = null;
-        Node<T> next = head;
-        
-        while (next != null && next.delay <= newNode.delay) {
-            newNode.delay -= next.delay;
-            prev = next;
-            next = next.next;
-        }
-        
-        if (prev == null) {
-            head = newNode;
-        }
-        else {
-            prev.next = newNode;
-        }
-        
-        if (next != null) {
-            next.delay -= newNode.delay;
-            
-            newNode.next = next;
+        Node<T> newNode = new Node<T>(value, after(delay), nextSequence++);
+
+        newNode.sameValue = nodesByValue.put(value, newNode);
+
+        if (size == heap.length) {
+            heap = copyOfHeap(size * 2);
         }
+        newNode.index = size++;
+        siftUp(newNode);
     }
 
-
+    /**
+     * Moves time forward by up to <var>timeUnits</var>, stopping when the 
+     * head element becomes due, and returns the time that was not used.
+     * Time never moves backwards.
+     */
     public long tick(long timeUnits) {
-        if (head == null) {
+        if (timeUnits <= 0) {
             return 0L;
         }
-        else if (head.delay >= timeUnits) {
-            head.delay -= timeUnits;
+        else if (isEmpty() || delay() >= timeUnits) {
+            now = after(timeUnits);
             return 0L;
         }
         else {
-            long leftover = timeUnits - head.delay;
-            head.delay = 0L;
+            long leftover = timeUnits - Math.max(0L, delay());
+            now = Math.max(now, head().time);
             return leftover;
         }
     }
 
     public T pop() {
-        if (head.delay > 0) {
+        if (delay() > 0) {
             throw new IllegalStateException("cannot pop the head element when it has a non-zero delay");
         }
-        
-        T popped = head.value;
-        head = head.next;
-        return popped;
+
+        Node<T> popped = head();
+        removeNode(popped);
+        return popped.value;
     }
-    
+
     public boolean remove(T element) {
-        Node<T> prev = null;
-        Node<T> node = head;
-        while (node != null && node.value != element) {
-            prev = node;
-            node = node.next;
-        }
-        
-        if (node == null) {
+        Node<T> first = nodesByValue.get(element);
+        if (first == null) {
             return false;
         }
-        
-        if (node.next != null) {
-            node.next.delay += node.delay;
+
+        for (Node<T> node = first.sameValue; node != null; node = node.sameValue) {
+            if (node.isBefore(first)) {
+                first = node;
+            }
         }
-        
-        if (prev == null) {
-            head = node.next;
+
+        removeNode(first);
+        return true;
+    }
+
+    // Times saturate rather than overflow, so that very long delays still
+    // sort after shorter ones, and are never earlier than now.
+    private long after(long delay) {
+        if (delay <= 0) {
+            return now;
+        }
+        return (delay > Long.MAX_VALUE - now) ? Long.MAX_VALUE : now + delay;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Node<T>[] copyOfHeap(int length) {
+        Node<T>[] copy = new Node[length];
+        System.arraycopy(heap, 0, copy, 0, Math.min(size, length));
+        return copy;
+    }
+
+    private Node<T> head() {
+        return heap[0];
+    }
+
+    private void removeNode(Node<T> node) {
+        unlinkSameValue(node);
+
+        Node<T> last = heap[--size];
+        heap[size] = null;
+        if (last != node) {
+            last.index = node.index;
+            heap[last.index] = last;
+            siftUp(last);
+            siftDown(last);
+        }
+    }
+
+    private void unlinkSameValue(Node<T> node) {
+        Node<T> first = nodesByValue.get(node.value);
+        if (first == node) {
+            if (node.sameValue == null) {
+                nodesByValue.remove(node.value);
+            }
+            else {
+                nodesByValue.put(node.value, node.sameValue);
+            }
         }
         else {
-            prev.next = node.next;
+            Node<T> prev = first;
+            while (prev.sameValue != node) {
+                prev = prev.sameValue;
+            }
+            prev.sameValue = node.sameValue;
         }
-        
-        return true;
+        node.sameValue = null;
+    }
+
+    private void siftUp(Node<T> node) {
+        int index = node.index;
+        while (index > 0) {
+            int parentIndex = (index - 1) / 2;
+            Node<T> parent = heap[parentIndex];
+            if (!node.isBefore(parent)) {
+                break;
+            }
+            parent.index = index;
+            heap[index] = parent;
+            index = parentIndex;
+        }
+        node.index = index;
+        heap[index] = node;
+    }
+
+    private void siftDown(Node<T> node) {
+        int index = node.index;
+        while (true) {
+            int childIndex = 2*index + 1;
+            if (childIndex >= size) {
+                break;
+            }
+            if (childIndex + 1 < size && heap[childIndex + 1].isBefore(heap[childIndex])) {
+                childIndex++;
+            }
+            Node<T> child = heap[childIndex];
+            if (!child.isBefore(node)) {
+                break;
+            }
+            child.index = index;
+            heap[index] = child;
+            index = childIndex;
+        }
+        node.index = index;
+        heap[index] = node;
     }
-    
+
     @Override
     public String toString() {
+        Node<T>[] nodes = copyOfHeap(size);
+        Arrays.sort(nodes, new Comparator<Node<T>>() {
+            public int compare(Node<T> a, Node<T> b) {
+                return a.isBefore(b) ? -1 : b.isBefore(a) ? 1 : 0;
+            }
+        });
+
         StringBuilder sb = new StringBuilder();
         sb.append(getClass().getSimpleName())
           .append("[");
-        
-        Node<T> node = head;
-        while (node != null) {
-            if (node != head) {
+
+        long time = now;
+        for (int i = 0; i < nodes.length; i++) {
+            if (i > 0) {
                 sb.append(", ");
             }
             sb.append("+")
-              .append(node.delay)
+              .append(nodes[i].time - time)
               .append(": ")
-              .append(node.value);
-            
-            node = node.next;
+              .append(nodes[i].value);
+
+            time = nodes[i].time;
         }
         sb.append("]");
-        
+
         return sb.toString();
     }
 }
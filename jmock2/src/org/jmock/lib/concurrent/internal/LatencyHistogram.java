@@ -0,0 +1,92 @@
+package org.jmock.lib.concurrent.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Counts latencies, in nanoseconds, in a fixed number of buckets.
+ *
+ * Latencies below 16ns are counted exactly.  Larger latencies are counted
+ * in buckets that split each power of two into 16 equal ranges, so a
+ * latency reported by the histogram is never more than 1/16th larger than
+ * the latency that was recorded.
+ *
+ * Latencies can be recorded by several threads at the same time.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS)*SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long latencyNanos) {
+        counts.incrementAndGet(bucketOf(Math.max(latencyNanos, 0L)));
+    }
+
+    /**
+     * Adds the latencies counted by <var>other</var> to this histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) counts.addAndGet(i, count);
+        }
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the latency that <var>percentile</var> percent of the recorded
+     * latencies are less than or equal to, rounded up to the largest latency
+     * counted in the same bucket, or zero if no latencies have been recorded.
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100, was " + percentile);
+        }
+
+        long total = count();
+        if (total == 0) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long)Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return largestValueIn(i);
+            }
+        }
+        return largestValueIn(BUCKET_COUNT - 1);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int)value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int)(value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT + shift*SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long largestValueIn(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+
+        int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long smallest = ((long)(SUB_BUCKET_COUNT + subBucket)) << shift;
+        return smallest + (1L << shift) - 1;
+    }
+}
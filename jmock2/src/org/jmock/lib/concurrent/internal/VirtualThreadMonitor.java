@@ -0,0 +1,150 @@
+package org.jmock.lib.concurrent.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jmock.lib.concurrent.VirtualThreadUsage;
+
+
+/**
+ * Measures how virtual threads use their carrier threads, using whatever
+ * the JDK exposes.
+ *
+ * Pinning is counted from the <code>jdk.VirtualThreadPinned</code> events
+ * of a Java Flight Recorder event stream.  Carrier utilisation is the CPU
+ * time used by the scheduler's carrier threads as a proportion of the
+ * scheduler's parallelism.  Both are looked up reflectively and are not
+ * reported if the JDK does not support them.
+ */
+public class VirtualThreadMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String CARRIER_THREAD_CLASS = "jdk.internal.misc.CarrierThread";
+
+    private final AtomicLong pinnedCount = new AtomicLong(0);
+    private Object pinnedEventStream = null;
+    private Map<Long, Long> carrierCpuTimesAtStart = null;
+    private long startTime;
+
+    public void start() {
+        pinnedEventStream = startPinnedEventStream();
+        carrierCpuTimesAtStart = carrierCpuTimes();
+        startTime = System.nanoTime();
+    }
+
+    public VirtualThreadUsage stop() {
+        long elapsed = System.nanoTime() - startTime;
+        double carrierUtilisation = carrierUtilisationOver(elapsed);
+        boolean pinningReported = stopPinnedEventStream();
+
+        return new VirtualThreadUsage(pinningReported ? pinnedCount.get() : -1, carrierUtilisation);
+    }
+
+    private Object startPinnedEventStream() {
+        try {
+            Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Class<?> settingsClass = Class.forName("jdk.jfr.EventSettings");
+            Class<?> durationClass = Class.forName("java.time.Duration");
+            Class<?> consumerClass = Class.forName("java.util.function.Consumer");
+
+            Object stream = streamClass.getConstructor().newInstance();
+            Object settings = streamClass.getMethod("enable", String.class).invoke(stream, PINNED_EVENT);
+            settingsClass.getMethod("withThreshold", durationClass).invoke(settings, durationClass.getField("ZERO").get(null));
+            streamClass.getMethod("onEvent", String.class, consumerClass).invoke(stream, PINNED_EVENT, counter(consumerClass));
+            streamClass.getMethod("startAsync").invoke(stream);
+            return stream;
+        }
+        catch (Exception e) {
+            return null;
+        }
+        catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    // Stopping the stream, where the JDK supports it, waits for the events
+    // recorded so far to be delivered.  Closing it does not.
+    private boolean stopPinnedEventStream() {
+        if (pinnedEventStream == null) {
+            return false;
+        }
+
+        try {
+            try {
+                pinnedEventStream.getClass().getMethod("stop").invoke(pinnedEventStream);
+            }
+            catch (NoSuchMethodException e) {
+                // the events delivered so far will have to do
+            }
+            pinnedEventStream.getClass().getMethod("close").invoke(pinnedEventStream);
+            return true;
+        }
+        catch (Exception e) {
+            return false;
+        }
+    }
+
+    private Object counter(Class<?> consumerClass) {
+        return Proxy.newProxyInstance(VirtualThreadMonitor.class.getClassLoader(), new Class<?>[]{consumerClass},
+            new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("accept")) {
+                        pinnedCount.incrementAndGet();
+                        return null;
+                    }
+                    else if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    else if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    else {
+                        return "pinned event counter";
+                    }
+                }
+            });
+    }
+
+    private double carrierUtilisationOver(long elapsed) {
+        Map<Long, Long> carrierCpuTimesAtEnd = carrierCpuTimes();
+        if (carrierCpuTimesAtStart == null || carrierCpuTimesAtEnd == null || elapsed <= 0) {
+            return Double.NaN;
+        }
+
+        long cpuTime = 0;
+        for (Map.Entry<Long, Long> carrier : carrierCpuTimesAtEnd.entrySet()) {
+            Long atStart = carrierCpuTimesAtStart.get(carrier.getKey());
+            cpuTime += carrier.getValue() - (atStart == null ? 0 : atStart.longValue());
+        }
+
+        return Math.min(1.0, cpuTime / ((double)elapsed * parallelism()));
+    }
+
+    private static Map<Long, Long> carrierCpuTimes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadCpuTimeSupported() || !threads.isThreadCpuTimeEnabled()) {
+            return null;
+        }
+
+        Map<Long, Long> cpuTimes = new HashMap<Long, Long>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getClass().getName().equals(CARRIER_THREAD_CLASS)) {
+                long cpuTime = threads.getThreadCpuTime(thread.getId());
+                if (cpuTime >= 0) {
+                    cpuTimes.put(thread.getId(), cpuTime);
+                }
+            }
+        }
+        return cpuTimes;
+    }
+
+    private static int parallelism() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                                  Runtime.getRuntime().availableProcessors());
+    }
+}
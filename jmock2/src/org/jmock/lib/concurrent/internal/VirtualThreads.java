@@ -0,0 +1,80 @@
+package org.jmock.lib.concurrent.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Creates virtual threads on JDKs that support them.  The JDK's API is
+ * looked up reflectively, so that jMock still runs on JDKs that do not.
+ *
+ * JDKs in which virtual threads are a preview feature have the API but
+ * refuse to create virtual threads unless preview features are enabled,
+ * so virtual threads are only reported to be available once one has run.
+ */
+public class VirtualThreads {
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = lookUpNewThreadPerTaskExecutor();
+    private static final boolean ARE_AVAILABLE = canRunAVirtualThread();
+
+    public static boolean areAvailable() {
+        return ARE_AVAILABLE;
+    }
+
+    /**
+     * Returns an executor that runs each task on a new virtual thread.
+     *
+     * @throws UnsupportedOperationException
+     *     if the JDK does not support virtual threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        if (!areAvailable()) {
+            throw new UnsupportedOperationException("virtual threads are not supported by this JDK");
+        }
+
+        try {
+            return (ExecutorService)NEW_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        }
+        catch (Exception e) {
+            throw new UnsupportedOperationException("could not create virtual threads", e);
+        }
+    }
+
+    private static boolean canRunAVirtualThread() {
+        if (NEW_THREAD_PER_TASK_EXECUTOR == null) {
+            return false;
+        }
+
+        try {
+            ExecutorService executor = (ExecutorService)NEW_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            try {
+                executor.submit(new Runnable() {
+                    public void run() {}
+                }).get();
+                return true;
+            }
+            finally {
+                executor.shutdown();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        catch (Exception e) {
+            return false;
+        }
+        catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Method lookUpNewThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
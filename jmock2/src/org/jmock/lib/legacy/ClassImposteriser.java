@@ -1,9 +1,15 @@
 package org.jmock.lib.legacy;
 
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import net.sf.cglib.core.CodeGenerationException;
 import net.sf.cglib.core.DefaultNamingPolicy;
@@ -22,6 +28,7 @@ import org.jmock.api.Invokable;
 import org.jmock.internal.SearchingClassLoader;
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
+import org.objenesis.instantiator.ObjectInstantiator;
 
 /**
  * This class lets you imposterise abstract and concrete classes 
@@ -47,7 +54,15 @@ public class ClassImposteriser implements Imposteriser {
         }
     };
     
-    private final Objenesis objenesis = new ObjenesisStd();
+    private final Objenesis objenesis = new ObjenesisStd(false);
+    
+    // Proxy classes are cached by the loader that defines them and then by
+    // the types they imposterise.  A class is held by its loader, so holding
+    // the class weakly keeps it for as long as its loader lives.  The
+    // instantiator refers to the class and so would keep the loader alive
+    // if held strongly: it is held softly instead.
+    private final Map<ClassLoader, Map<List<Class<?>>, CachedProxyClass>> proxyClasses = 
+        new WeakHashMap<ClassLoader, Map<List<Class<?>>, CachedProxyClass>>();
     
     public boolean canImposterise(Class<?> type) {
         return !type.isPrimitive() && 
@@ -60,15 +75,38 @@ public class ClassImposteriser implements Imposteriser {
             throw new IllegalArgumentException(mockedType.getName() + " has a final toString method");
         }
         
+        return mockedType.cast(createProxy(instantiatorFor(mockedType, ancilliaryTypes), mockObject));
+	}
+    
+    private synchronized ObjectInstantiator instantiatorFor(Class<?> mockedType, Class<?>... ancilliaryTypes) {
+        ClassLoader classLoader = SearchingClassLoader.combineLoadersOf(mockedType, ancilliaryTypes);
+        
+        Map<List<Class<?>>, CachedProxyClass> proxyClassesOfLoader = proxyClasses.get(classLoader);
+        if (proxyClassesOfLoader == null) {
+            proxyClassesOfLoader = new HashMap<List<Class<?>>, CachedProxyClass>();
+            proxyClasses.put(classLoader, proxyClassesOfLoader);
+        }
+        
+        List<Class<?>> key = Arrays.asList(prepend(mockedType, ancilliaryTypes));
+        CachedProxyClass cachedProxyClass = proxyClassesOfLoader.get(key);
+        Class<?> proxyClass = (cachedProxyClass == null) ? null : cachedProxyClass.get();
+        if (proxyClass == null) {
+            proxyClass = createProxyClass(classLoader, mockedType, ancilliaryTypes);
+            cachedProxyClass = new CachedProxyClass(proxyClass);
+            proxyClassesOfLoader.put(key, cachedProxyClass);
+        }
+        return cachedProxyClass.instantiatorOf(proxyClass);
+    }
+    
+    private Class<?> createProxyClass(ClassLoader classLoader, Class<?> mockedType, Class<?>... ancilliaryTypes) {
         try {
             setConstructorsAccessible(mockedType, true);
-            Class<?> proxyClass = createProxyClass(mockedType, ancilliaryTypes);
-            return mockedType.cast(createProxy(proxyClass, mockObject));
+            return generateProxyClass(classLoader, mockedType, ancilliaryTypes);
         }
         finally {
             setConstructorsAccessible(mockedType, false);
         }
-	}
+    }
     
     private boolean toStringMethodIsFinal(Class<?> type) {
         try {
@@ -90,18 +128,18 @@ public class ClassImposteriser implements Imposteriser {
         }
     }
     
-    private <T> Class<?> createProxyClass(Class<?> possibleMockedType, Class<?>... ancilliaryTypes) {
+    private Class<?> generateProxyClass(ClassLoader classLoader, Class<?> possibleMockedType, Class<?>... ancilliaryTypes) {
         Class<?> mockedType = 
             possibleMockedType == Object.class ? ClassWithSuperclassToWorkAroundCglibBug.class : possibleMockedType;
         
         Enhancer enhancer = new Enhancer() {
             @Override
-            @SuppressWarnings("unchecked")
+            @SuppressWarnings({"unchecked", "rawtypes"})
             protected void filterConstructors(Class sc, List constructors) {
                 // Don't filter
             }
         };
-        enhancer.setClassLoader(SearchingClassLoader.combineLoadersOf(mockedType, ancilliaryTypes));
+        enhancer.setClassLoader(classLoader);
         enhancer.setUseFactory(true);
         if (mockedType.isInterface()) {
             enhancer.setSuperclass(Object.class);
@@ -111,7 +149,7 @@ public class ClassImposteriser implements Imposteriser {
             enhancer.setSuperclass(mockedType);
             enhancer.setInterfaces(ancilliaryTypes);
         }
-        enhancer.setCallbackTypes(new Class[]{InvocationHandler.class, NoOp.class});
+        enhancer.setCallbackTypes(new Class<?>[]{InvocationHandler.class, NoOp.class});
         enhancer.setCallbackFilter(IGNORE_BRIDGE_METHODS);
         if (mockedType.getSigners() != null) {
             enhancer.setNamingPolicy(NAMING_POLICY_THAT_ALLOWS_IMPOSTERISATION_OF_CLASSES_IN_SIGNED_PACKAGES);
@@ -128,12 +166,12 @@ public class ClassImposteriser implements Imposteriser {
         }
     }
     
-    private Object createProxy(Class<?> proxyClass, final Invokable mockObject) {
-        Factory proxy = (Factory)objenesis.newInstance(proxyClass);
+    private Object createProxy(ObjectInstantiator instantiator, final Invokable mockObject) {
+        Factory proxy = (Factory)instantiator.newInstance();
         proxy.setCallbacks(new Callback[] {
             new InvocationHandler() {
                 public Object invoke(Object receiver, Method method, Object[] args) throws Throwable {
-                    return mockObject.invoke(new Invocation(receiver, method, args));
+                    return mockObject.invoke(Invocation.adopting(receiver, method, args));
                 }
             },
             NoOp.INSTANCE
@@ -148,5 +186,29 @@ public class ClassImposteriser implements Imposteriser {
         return all;
     }
     
+    private class CachedProxyClass {
+        private final WeakReference<Class<?>> proxyClass;
+        private SoftReference<ObjectInstantiator> instantiator = null;
+        
+        public CachedProxyClass(Class<?> proxyClass) {
+            this.proxyClass = new WeakReference<Class<?>>(proxyClass);
+        }
+        
+        public Class<?> get() {
+            return proxyClass.get();
+        }
+        
+        // The caller passes in the class it got from this cache, so that the
+        // class cannot be collected between checking and using it.
+        public ObjectInstantiator instantiatorOf(Class<?> proxyClass) {
+            ObjectInstantiator cachedInstantiator = (instantiator == null) ? null : instantiator.get();
+            if (cachedInstantiator == null) {
+                cachedInstantiator = objenesis.getInstantiatorOf(proxyClass);
+                instantiator = new SoftReference<ObjectInstantiator>(cachedInstantiator);
+            }
+            return cachedInstantiator;
+        }
+    }
+    
     public static class ClassWithSuperclassToWorkAroundCglibBug {}
 }
@@ -1,12 +1,27 @@
 package org.jmock.lib.script;
 
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.hamcrest.Description;
 import org.jmock.api.Action;
 import org.jmock.api.Invocation;
 
+import bsh.CallStack;
 import bsh.EvalError;
 import bsh.Interpreter;
+import bsh.Modifiers;
+import bsh.NameSpace;
+import bsh.ParseException;
+import bsh.Parser;
+import bsh.Primitive;
 import bsh.TargetError;
+import bsh.TokenMgrError;
+import bsh.UtilEvalError;
 
 /** 
  * <p>An {@link Action} that executes a <a href="http://www.beanshell.org">BeanShell</a> script.
@@ -40,16 +55,17 @@ import bsh.TargetError;
 public class ScriptedAction implements Action {
     private final Interpreter interpreter = new Interpreter();
     private final String script;
+    private final Object[] statements;
 
     public ScriptedAction(String expression) {
         this.script = expression;
+        this.statements = parse(expression);
         this.interpreter.setStrictJava(true);
     }
 
     public Object invoke(Invocation invocation) throws Throwable {
         try {
-            defineParameters(interpreter, invocation);
-            return interpreter.eval(script);
+            return evaluate(namespaceFor(invocation));
         }
         catch (TargetError e) {
             throw e.getTarget();
@@ -59,12 +75,121 @@ public class ScriptedAction implements Action {
         }
     }
     
-    private void defineParameters(Interpreter interpreter, Invocation invocation) 
-        throws EvalError 
-    {
-        interpreter.set("$this", invocation.getInvokedObject());
-        for (int i = 0; i < invocation.getParameterCount(); i++) {
-            interpreter.set("$" + i, invocation.getParameter(i));
+    // Parameters are bound in a namespace of their own, whose parent holds the
+    // variables defined by where(...), so that concurrent invocations do not
+    // overwrite each other's bindings.  The namespace is not given a class
+    // manager so that it is not registered as a listener of the interpreter's.
+    private NameSpace namespaceFor(Invocation invocation) {
+        NameSpace namespace = new NameSpace(interpreter.getNameSpace(), null, "invocation");
+        Modifiers noModifiers = new Modifiers();
+        try {
+            namespace.setTypedVariable("$this", null, invocation.getInvokedObject(), noModifiers);
+            for (int i = 0; i < invocation.getParameterCount(); i++) {
+                namespace.setTypedVariable("$" + i, null, invocation.getParameter(i), noModifiers);
+            }
+        }
+        catch (UtilEvalError e) {
+            throw new IllegalStateException("could not bind parameters of invocation", e);
+        }
+        return namespace;
+    }
+    
+    private Object evaluate(NameSpace namespace) throws EvalError {
+        CallStack callstack = new CallStack(namespace);
+        Object result = Primitive.VOID;
+        
+        for (Object statement : statements) {
+            result = ParseTree.eval(statement, callstack, interpreter);
+            if (ParseTree.isReturnControl(result)) {
+                result = ParseTree.returnedValue(result);
+                break;
+            }
+        }
+        
+        return Primitive.unwrap(result);
+    }
+    
+    private static Object[] parse(String script) {
+        String source = script.endsWith(";") ? script : script + ";";
+        Parser parser = new Parser(new StringReader(source));
+        List<Object> statements = new ArrayList<Object>();
+        
+        try {
+            while (!parser.Line()) {
+                Object statement = parser.popNode();
+                if (statement != null) {
+                    statements.add(statement);
+                }
+            }
+        }
+        catch (ParseException e) {
+            throw new IllegalArgumentException("could not parse script", e);
+        }
+        catch (TokenMgrError e) {
+            throw new IllegalArgumentException("could not parse script", e);
+        }
+        
+        return statements.toArray();
+    }
+    
+    // BeanShell does not make the nodes of its parse tree, nor the control
+    // object that a return statement evaluates to, visible outside its own
+    // package, so they are used reflectively.
+    private static class ParseTree {
+        private static final Method EVAL;
+        private static final Class<?> RETURN_CONTROL;
+        private static final Field RETURNED_VALUE;
+        
+        static {
+            try {
+                ClassLoader loader = Interpreter.class.getClassLoader();
+                EVAL = Class.forName("bsh.SimpleNode", false, loader)
+                    .getMethod("eval", CallStack.class, Interpreter.class);
+                EVAL.setAccessible(true);
+                RETURN_CONTROL = Class.forName("bsh.ReturnControl", false, loader);
+                RETURNED_VALUE = RETURN_CONTROL.getField("value");
+                RETURNED_VALUE.setAccessible(true);
+            }
+            catch (Exception e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+        
+        public static Object eval(Object node, CallStack callstack, Interpreter interpreter) throws EvalError {
+            try {
+                return EVAL.invoke(node, callstack, interpreter);
+            }
+            catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof EvalError) {
+                    throw (EvalError)cause;
+                }
+                else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                }
+                else if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                else {
+                    throw new IllegalStateException("unexpected exception from BeanShell", cause);
+                }
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("could not evaluate script", e);
+            }
+        }
+        
+        public static boolean isReturnControl(Object result) {
+            return RETURN_CONTROL.isInstance(result);
+        }
+        
+        public static Object returnedValue(Object returnControl) {
+            try {
+                return RETURNED_VALUE.get(returnControl);
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("could not read value returned by script", e);
+            }
         }
     }
 
@@ -75,10 +200,16 @@ public class ScriptedAction implements Action {
     /**
      * Creates an action that performs the given script.
      * 
+     * The script is parsed when the action is created, so a syntax error 
+     * fails the test when the expectation is defined, not when the mocked 
+     * method is invoked.
+     * 
      * @param script
      *     a BeanShell script.
      * @return
      *     the new action.
+     * @throws IllegalArgumentException
+     *     if the script has a syntax error.
      */
     public static ScriptedAction perform(String script) {
         return new ScriptedAction(script);
@@ -44,4 +44,37 @@ public class DefineExpectationWithinExpectationsAcceptanceTests extends TestCase
             oneOf (a).a(aNewMockWithExpectations());
         }});
     }
+    
+    public void testCanDefineExpectationsOfTheSameMockWithinExpectations() {
+        final MockedTypeB b = context.mock(MockedTypeB.class, "b");
+        
+        context.checking(new Expectations() {{
+            oneOf (a).a(withExpectationsOfNullArgumentTo(a, b));
+        }});
+        
+        a.a(null);
+        a.a(b);
+        
+        context.assertIsSatisfied();
+    }
+    
+    private MockedTypeB withExpectationsOfNullArgumentTo(final MockedTypeA mock, MockedTypeB result) {
+        context.checking(new Expectations() {{
+            oneOf (mock).a(null);
+        }});
+        
+        return result;
+    }
+    
+    public void testCapturesSuccessiveExpectationsOfAMockWithTheSameImposter() {
+        context.checking(new Expectations() {{
+            MockedTypeA first = oneOf (a);
+            first.a(null);
+            
+            MockedTypeA second = allowing (a);
+            second.a(null);
+            
+            assertSame("capturing imposter", first, second);
+        }});
+    }
 }
@@ -3,6 +3,10 @@ package org.jmock.test.acceptance;
 import static java.util.Arrays.asList;
 import static org.hamcrest.StringDescription.asString;
 import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.hamcrest.Matcher;
@@ -10,6 +14,9 @@ import org.hamcrest.text.StringContainsInOrder;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.api.ExpectationError;
+import org.jmock.lib.BoundedInvocationHistory;
+import org.jmock.lib.MethodInvocationCountingHistory;
+import org.jmock.lib.SnapshotParameterRetention;
 
 public class RecordingAcceptanceTests extends TestCase {
     Mockery context = new Mockery();
@@ -104,6 +111,59 @@ public class RecordingAcceptanceTests extends TestCase {
         }
     }
     
+    public void testCanRecordOnlyTheMostRecentInvocations() {
+        context.setInvocationHistory(new BoundedInvocationHistory(2));
+        context.checking(new Expectations() {{
+            allowing (mock).doSomethingWith(with(any(String.class)));
+        }});
+        
+        mock.doSomethingWith("x");
+        mock.doSomethingWith("y");
+        mock.doSomethingWith("z");
+        
+        assertThat(asString(context), containsInOrder(
+            "what happened before this:",
+            "1 earlier invocation not shown",
+            "mock.doSomethingWith(\"y\")",
+            "mock.doSomethingWith(\"z\")"));
+    }
+    
+    public void testCanCountInvocationsWithoutRecordingThem() {
+        context.setInvocationHistory(new MethodInvocationCountingHistory());
+        context.checking(new Expectations() {{
+            allowing (mock).doSomethingWith(with(any(String.class)));
+        }});
+        
+        mock.doSomethingWith("x");
+        mock.doSomethingWith("y");
+        
+        assertThat(asString(context), containsInOrder(
+            "what happened before this:",
+            "mock.doSomethingWith(...): 2 times"));
+    }
+    
+    public interface Collector {
+        void collect(List<String> values);
+    }
+    
+    public void testCanRecordSnapshotsOfInvocationsInsteadOfTheirParameters() {
+        final Collector collector = context.mock(Collector.class, "collector");
+        
+        context.setParameterRetention(new SnapshotParameterRetention(100));
+        context.checking(new Expectations() {{
+            allowing (collector).collect(with.<List<String>>is(anything()));
+        }});
+        
+        List<String> values = new ArrayList<String>();
+        values.add("before");
+        collector.collect(values);
+        values.add("after");
+        
+        assertThat(asString(context), containsInOrder(
+            "what happened before this:",
+            "collector.collect(<[before]>)"));
+    }
+    
     private Matcher<? super String> containsInOrder(String... strings) {
         return new StringContainsInOrder(asList(strings));
     }
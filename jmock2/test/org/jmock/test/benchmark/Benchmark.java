@@ -0,0 +1,41 @@
+package org.jmock.test.benchmark;
+
+/**
+ * An operation that is timed by running it in a plain loop.
+ *
+ * The build has no benchmarking framework, so each benchmark is a program
+ * with a main method.  It runs the operation for several rounds and prints
+ * the average time the operation took in each round.  The first rounds
+ * include the time taken to compile the code and should be ignored.
+ */
+public abstract class Benchmark {
+    private static final int ROUNDS = 10;
+
+    private final String name;
+    private final int iterations;
+
+    // Keeps the results of the operation reachable so that the compiler
+    // cannot discard the work that produced them.
+    private Object lastResult;
+
+    protected Benchmark(String name, int iterations) {
+        this.name = name;
+        this.iterations = iterations;
+    }
+
+    protected abstract Object run() throws Throwable;
+
+    public void time() throws Throwable {
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                lastResult = run();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            double nanosPerOperation = (double)elapsed / iterations;
+            System.out.println(String.format("%s, round %d: %.1f ns per operation (%.0f per second)",
+                                             name, round, nanosPerOperation, 1e9 / nanosPerOperation));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.jmock.test.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.api.Invokable;
+import org.jmock.lib.JavaReflectionImposteriser;
+
+/**
+ * Times creating mocks of an interface that is loaded by a different class
+ * loader from jMock's, as it is when tests are run by an IDE or a build
+ * tool.  The imposteriser then has to combine the two class loaders to
+ * define the proxy class.
+ */
+public class ImposterisationBenchmark {
+    public static void main(String[] args) throws Throwable {
+        final Class<?> mockedType = new ServiceClassLoader().loadClass(Service.class.getName());
+
+        final Invokable invokable = new Invokable() {
+            public Object invoke(Invocation invocation) throws Throwable {
+                return null;
+            }
+        };
+
+        new Benchmark("imposterising an interface from another class loader", 20000) {
+            @Override
+            protected Object run() {
+                return JavaReflectionImposteriser.INSTANCE.imposterise(invokable, mockedType);
+            }
+        }.time();
+
+        new Benchmark("creating a Mockery and a mock of an interface from another class loader", 20000) {
+            @Override
+            protected Object run() {
+                return new Mockery().mock(mockedType);
+            }
+        }.time();
+    }
+
+    // Defines its own copy of the Service interface and can load no other
+    // classes except those of the JDK.  Service is not a nested type, because
+    // the loader could not load the class it was nested in.
+    private static class ServiceClassLoader extends ClassLoader {
+        public ServiceClassLoader() {
+            super(null);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (!name.equals(Service.class.getName())) {
+                throw new ClassNotFoundException(name);
+            }
+
+            try {
+                byte[] bytes = readClassFile(Service.class);
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+            catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        private static byte[] readClassFile(Class<?> c) throws IOException {
+            String resourceName = "/" + c.getName().replace('.', '/') + ".class";
+            InputStream in = c.getResourceAsStream(resourceName);
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int count;
+                while ((count = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, count);
+                }
+                return out.toByteArray();
+            }
+            finally {
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.jmock.test.benchmark;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.internal.InvocationExpectation;
+import org.jmock.internal.matcher.AllParametersMatcher;
+import org.jmock.internal.matcher.MockObjectMatcher;
+import org.jmock.lib.BoundedInvocationHistory;
+
+/**
+ * Times matching literal parameters, on their own and as part of a mock call
+ * that is dispatched among many stubbed expectations.
+ */
+public class ParameterMatchingBenchmark {
+    private static final int STUB_COUNT = 1000;
+
+    public interface Lookup {
+        String lookup(String key, int index, boolean flag);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        final Lookup receiver = new Lookup() {
+            public String lookup(String key, int index, boolean flag) {
+                return null;
+            }
+        };
+        final Invocation invocation = new Invocation(receiver,
+            Lookup.class.getMethod("lookup", String.class, int.class, boolean.class),
+            "key", 1, true);
+
+        final InvocationExpectation expectation = new InvocationExpectation();
+        expectation.setObjectMatcher(new MockObjectMatcher(receiver));
+        expectation.setMethod(invocation.getInvokedMethod());
+        expectation.setParametersMatcher(new AllParametersMatcher(new Object[]{"key", 1, true}));
+
+        new Benchmark("matching three literal parameters", 1000000) {
+            @Override
+            protected Object run() {
+                return expectation.matches(invocation);
+            }
+        }.time();
+
+        // Recording every call would time the garbage collector, not dispatch.
+        Mockery context = new Mockery();
+        context.setInvocationHistory(new BoundedInvocationHistory(16));
+        final Lookup lookup = context.mock(Lookup.class);
+        context.checking(new Expectations() {{
+            for (int i = 0; i < STUB_COUNT; i++) {
+                allowing (lookup).lookup("key" + i, i, true); will(returnValue("value" + i));
+            }
+        }});
+
+        final String key = "key" + STUB_COUNT/2;
+        new Benchmark("mock call among " + STUB_COUNT + " literal stubs", 1000000) {
+            @Override
+            protected Object run() {
+                return lookup.lookup(key, STUB_COUNT/2, true);
+            }
+        }.time();
+    }
+}
@@ -0,0 +1,39 @@
+package org.jmock.test.benchmark;
+
+import static org.jmock.lib.script.ScriptedAction.perform;
+
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+
+/**
+ * Times invoking a scripted action that calls back one of the parameters
+ * of the invocation with another.
+ */
+public class ScriptedActionBenchmark {
+    public interface Callout {
+        void doSomethingWith(Callback callback, Object value);
+    }
+
+    public interface Callback {
+        void callbackWith(Object value);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        final Callback callback = new Callback() {
+            public void callbackWith(Object value) {
+            }
+        };
+        final Invocation invocation = new Invocation("callout",
+            Callout.class.getMethod("doSomethingWith", Callback.class, Object.class),
+            callback, "value");
+
+        final Action action = perform("$0.callbackWith($1)");
+
+        new Benchmark("invoking \"$0.callbackWith($1)\"", 100000) {
+            @Override
+            protected Object run() throws Throwable {
+                return action.invoke(invocation);
+            }
+        }.time();
+    }
+}
@@ -0,0 +1,5 @@
+package org.jmock.test.benchmark;
+
+public interface Service {
+    String call(String request);
+}
@@ -4,6 +4,7 @@ package org.jmock.test.unit.api;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -51,6 +52,39 @@ public class InvocationTests extends TestCase {
                      Arrays.asList(ARG_VALUES), Arrays.asList(invocation.getParametersAsArray()));
     }
 
+    public void testCopiesParameterValuesWhenConstructed() {
+        Object[] argValues = ARG_VALUES.clone();
+        Invocation invocation = new Invocation(INVOKED, method, argValues);
+        
+        argValues[0] = new Integer(1);
+        
+        assertEquals("parameter value", ARG_VALUES[0], invocation.getParameter(0));
+    }
+    
+    public void testCanAdoptParameterValuesWithoutCopyingThem() {
+        Object[] argValues = ARG_VALUES.clone();
+        Invocation invocation = Invocation.adopting(INVOKED, method, argValues);
+        
+        argValues[0] = new Integer(1);
+        
+        assertEquals("parameter value", new Integer(1), invocation.getParameter(0));
+    }
+    
+    public void testProvidesReadOnlyViewOfParameterValues() {
+        Invocation invocation = new Invocation(INVOKED, method, ARG_VALUES);
+        
+        List<Object> parameters = invocation.getParameters();
+        assertEquals("parameter values", Arrays.asList(ARG_VALUES), parameters);
+        
+        try {
+            parameters.set(0, new Integer(1));
+            fail("should not be able to modify parameter values");
+        }
+        catch (UnsupportedOperationException expected) {}
+        
+        assertEquals("parameter value", ARG_VALUES[0], invocation.getParameter(0));
+    }
+    
     public void testConstructorInterpretsNullParameterValueArrayAsZeroArguments() {
         Invocation invocation = new Invocation(INVOKED, method);
 
@@ -1,10 +1,22 @@
 package org.jmock.test.unit.internal;
 
+import static org.hamcrest.Matchers.anything;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import junit.framework.TestCase;
 
+import org.hamcrest.Matcher;
 import org.jmock.api.ExpectationError;
 import org.jmock.api.Invocation;
+import org.jmock.internal.Cardinality;
 import org.jmock.internal.InvocationDispatcher;
+import org.jmock.internal.InvocationExpectation;
+import org.jmock.internal.matcher.AllParametersMatcher;
+import org.jmock.internal.matcher.MockObjectMatcher;
 import org.jmock.test.unit.support.MethodFactory;
 import org.jmock.test.unit.support.MockExpectation;
 
@@ -85,4 +97,256 @@ public class InvocationDispatcherTests extends TestCase {
         assertFalse("should not be satisfied if no expectations are satisfied",
                     dispatcherNone.isSatisfied());
     }
+    
+    public void testInvokesFirstMatchingExpectationWhenExpectationsAreIndexedByReceiverAndMethod() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method");
+        Invocation invocationOfReceiver = new Invocation(receiver, method, Invocation.NO_PARAMETERS);
+        
+        InvocationExpectation ofOtherMethod = expectationOf(receiver, methodFactory.newMethod("otherMethod"));
+        InvocationExpectation ofOtherReceiver = expectationOf("otherReceiver", method);
+        MockExpectation wildcard = new MockExpectation(true, NOT_RELEVANT, NOT_RELEVANT);
+        InvocationExpectation ofReceiverAndMethod = expectationOf(receiver, method);
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(ofOtherMethod);
+        dispatcher.add(ofOtherReceiver);
+        dispatcher.add(wildcard);
+        dispatcher.add(ofReceiverAndMethod);
+        
+        wildcard.shouldBeInvokedWith(invocationOfReceiver);
+        
+        dispatcher.dispatch(invocationOfReceiver);
+        
+        assertTrue("wildcard expectation declared first should have been invoked", 
+                   wildcard.wasInvoked);
+        assertTrue("later indexed expectation should not have been invoked",
+                   ofReceiverAndMethod.allowsMoreInvocations());
+    }
+    
+    public void testInvokesIndexedExpectationDeclaredBeforeWildcardExpectation() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method");
+        Invocation invocationOfReceiver = new Invocation(receiver, method, Invocation.NO_PARAMETERS);
+        
+        InvocationExpectation ofReceiverAndMethod = expectationOf(receiver, method);
+        MockExpectation wildcard = new MockExpectation(true, NOT_RELEVANT, NOT_RELEVANT);
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(ofReceiverAndMethod);
+        dispatcher.add(wildcard);
+        
+        wildcard.shouldNotBeInvoked();
+        
+        dispatcher.dispatch(invocationOfReceiver);
+        
+        assertFalse("indexed expectation should have been invoked", 
+                    ofReceiverAndMethod.allowsMoreInvocations());
+    }
+    
+    public void testDoesNotInvokeIndexedExpectationsOfOtherReceivers() throws Throwable {
+        Method method = methodFactory.newMethod("method");
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(expectationOf("otherReceiver", method));
+        
+        try {
+            dispatcher.dispatch(new Invocation("receiver", method, Invocation.NO_PARAMETERS));
+            fail("should have thrown ExpectationError");
+        }
+        catch (ExpectationError e) {
+            // expected
+        }
+    }
+    
+    public void testInvokesFirstDeclaredExpectationWhenSeveralHaveTheSameLiteralParameters() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method", new Class<?>[]{String.class}, void.class, new Class<?>[0]);
+        
+        InvocationExpectation first = expectationOf(receiver, method, "key");
+        InvocationExpectation second = expectationOf(receiver, method, "key");
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(expectationOf(receiver, method, "otherKey"));
+        dispatcher.add(first);
+        dispatcher.add(second);
+        
+        dispatcher.dispatch(new Invocation(receiver, method, "key"));
+        assertFalse("first expectation should have been invoked", first.allowsMoreInvocations());
+        assertTrue("second expectation should not have been invoked", second.allowsMoreInvocations());
+        
+        dispatcher.dispatch(new Invocation(receiver, method, "key"));
+        assertFalse("second expectation should have been invoked", second.allowsMoreInvocations());
+    }
+    
+    public void testInvokesExpectationWithMatchersDeclaredBeforeExpectationWithLiteralParameters() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method", new Class<?>[]{String.class}, void.class, new Class<?>[0]);
+        
+        InvocationExpectation withMatchers = expectationOf(receiver, method);
+        withMatchers.setParametersMatcher(new AllParametersMatcher(Arrays.<Matcher<?>>asList(anything())));
+        InvocationExpectation withLiterals = expectationOf(receiver, method, "key");
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(withMatchers);
+        dispatcher.add(withLiterals);
+        
+        dispatcher.dispatch(new Invocation(receiver, method, "key"));
+        assertFalse("expectation with matchers should have been invoked", withMatchers.allowsMoreInvocations());
+        
+        dispatcher.dispatch(new Invocation(receiver, method, "key"));
+        assertFalse("expectation with literals should have been invoked", withLiterals.allowsMoreInvocations());
+    }
+    
+    public void testOnlyConsidersExpectationsWhoseLiteralParametersHaveTheSameHashAsTheInvocation() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method", new Class<?>[]{String.class}, void.class, new Class<?>[0]);
+        
+        CountingExpectation a = countingExpectationOf(receiver, method, "a");
+        CountingExpectation b = countingExpectationOf(receiver, method, "b");
+        CountingExpectation key = countingExpectationOf(receiver, method, "key");
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(a);
+        dispatcher.add(b);
+        dispatcher.add(key);
+        
+        dispatcher.dispatch(new Invocation(receiver, method, "key"));
+        
+        assertFalse("expectation should have been invoked", key.allowsMoreInvocations());
+        assertEquals("expectations of \"a\" considered", 0, a.consideredCount);
+        assertEquals("expectations of \"b\" considered", 0, b.consideredCount);
+    }
+    
+    public void testAlwaysConsidersExpectationsOfLiteralParametersWhoseHashCodeIsInconsistentWithEquals() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method", new Class<?>[]{Object.class}, void.class, new Class<?>[0]);
+        
+        CountingExpectation unhashable = countingExpectationOf(receiver, method, new EqualToAnyOtherInstance());
+        InvocationExpectation hashable = expectationOf(receiver, method, "key");
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(unhashable);
+        dispatcher.add(hashable);
+        
+        dispatcher.dispatch(new Invocation(receiver, method, "key"));
+        assertEquals("times unhashable expectation considered", 1, unhashable.consideredCount);
+        assertFalse("expectation with hashable parameters should have been invoked", hashable.allowsMoreInvocations());
+        
+        dispatcher.dispatch(new Invocation(receiver, method, new EqualToAnyOtherInstance()));
+        assertFalse("expectation with unhashable parameters should have been invoked", unhashable.allowsMoreInvocations());
+    }
+    
+    public void testAlwaysConsidersExpectationsOfLiteralArrayParametersAndMatchesThemElementByElement() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method", new Class<?>[]{Object.class}, void.class, new Class<?>[0]);
+        
+        CountingExpectation array = countingExpectationOf(receiver, method, (Object)new int[]{1, 2});
+        InvocationExpectation hashable = expectationOf(receiver, method, "key");
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(array);
+        dispatcher.add(hashable);
+        
+        dispatcher.dispatch(new Invocation(receiver, method, "key"));
+        assertEquals("times array expectation considered", 1, array.consideredCount);
+        assertFalse("expectation with hashable parameters should have been invoked", hashable.allowsMoreInvocations());
+        
+        dispatcher.dispatch(new Invocation(receiver, method, (Object)new Object[]{1, 2}));
+        assertFalse("expectation with array parameters should have been invoked", array.allowsMoreInvocations());
+    }
+    
+    public void testMatchesLiteralCollectionParametersThatChangedAfterTheExpectationWasDeclared() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method", new Class<?>[]{List.class}, void.class, new Class<?>[0]);
+        List<String> list = new ArrayList<String>();
+        
+        InvocationExpectation expectation = expectationOf(receiver, method, list);
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(expectationOf(receiver, method, "other"));
+        dispatcher.add(expectation);
+        
+        list.add("x");
+        
+        dispatcher.dispatch(new Invocation(receiver, method, list));
+        assertFalse("expectation should have been invoked", expectation.allowsMoreInvocations());
+    }
+    
+    public void testIsSatisfiedWhenInvokedExpectationsBecomeSatisfied() throws Throwable {
+        Object receiver = "receiver";
+        Method method = methodFactory.newMethod("method");
+        Method otherMethod = methodFactory.newMethod("otherMethod");
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(expectationOf(receiver, method));
+        dispatcher.add(expectationOf(receiver, otherMethod));
+        dispatcher.add(new MockExpectation(NOT_RELEVANT, true, NOT_RELEVANT));
+        
+        assertFalse("should not be satisfied before any invocations", dispatcher.isSatisfied());
+        
+        dispatcher.dispatch(new Invocation(receiver, method));
+        assertFalse("should not be satisfied after first invocation", dispatcher.isSatisfied());
+        
+        dispatcher.dispatch(new Invocation(receiver, otherMethod));
+        assertTrue("should be satisfied after all invocations", dispatcher.isSatisfied());
+    }
+    
+    public void testIsNotSatisfiedIfUntrackedExpectationIsNotSatisfied() {
+        InvocationExpectation allowed = new InvocationExpectation();
+        
+        InvocationDispatcher dispatcher = new InvocationDispatcher();
+        dispatcher.add(allowed);
+        dispatcher.add(new MockExpectation(NOT_RELEVANT, false, NOT_RELEVANT));
+        
+        assertFalse("should not be satisfied", dispatcher.isSatisfied());
+    }
+    
+    private InvocationExpectation expectationOf(Object receiver, Method method, Object... parameters) {
+        return configure(new InvocationExpectation(), receiver, method, parameters);
+    }
+    
+    private CountingExpectation countingExpectationOf(Object receiver, Method method, Object... parameters) {
+        return configure(new CountingExpectation(), receiver, method, parameters);
+    }
+    
+    private InvocationExpectation expectationOf(Object receiver, Method method) {
+        return configure(new InvocationExpectation(), receiver, method);
+    }
+    
+    private <T extends InvocationExpectation> T configure(T expectation, Object receiver, Method method, Object... parameters) {
+        configure(expectation, receiver, method);
+        expectation.setParametersMatcher(new AllParametersMatcher(parameters));
+        return expectation;
+    }
+    
+    private <T extends InvocationExpectation> T configure(T expectation, Object receiver, Method method) {
+        expectation.setCardinality(Cardinality.exactly(1));
+        expectation.setObjectMatcher(new MockObjectMatcher(receiver));
+        expectation.setMethod(method);
+        return expectation;
+    }
+    
+    public static class CountingExpectation extends InvocationExpectation {
+        public int consideredCount = 0;
+        
+        @Override
+        public boolean matches(Invocation invocation) {
+            consideredCount++;
+            return super.matches(invocation);
+        }
+    }
+    
+    public static class EqualToAnyOtherInstance {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof EqualToAnyOtherInstance;
+        }
+        
+        // deliberately inconsistent with equals
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
 }
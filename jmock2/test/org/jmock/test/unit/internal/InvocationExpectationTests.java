@@ -4,6 +4,9 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.sameInstance;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -15,6 +18,7 @@ import org.jmock.api.Invocation;
 import org.jmock.internal.Cardinality;
 import org.jmock.internal.InvocationExpectation;
 import org.jmock.internal.OrderingConstraint;
+import org.jmock.internal.SatisfactionListener;
 import org.jmock.internal.SideEffect;
 import org.jmock.internal.matcher.AllParametersMatcher;
 import org.jmock.lib.action.ReturnValueAction;
@@ -81,6 +85,37 @@ public class InvocationExpectationTests extends TestCase {
 		assertTrue("should not match", !expectation.matches(new Invocation(targetObject, method, noArgs)));
 	}
 	
+	public void testDoesNotDescribeParameterMatchersWhenMatching() {
+		Matcher<Object> undescribableMatcher = new BaseMatcher<Object>() {
+			public boolean matches(Object actual) {
+				return false;
+			}
+			public void describeTo(Description description) {
+				fail("should not describe matcher when matching");
+			}
+			@Override
+			public void describeMismatch(Object item, Description description) {
+				fail("should not describe mismatch when matching");
+			}
+		};
+		
+		expectation.setParametersMatcher(new AllParametersMatcher(Arrays.<Matcher<?>>asList(undescribableMatcher)));
+		
+		assertFalse("should not match", expectation.matches(new Invocation(targetObject, method, "arg")));
+	}
+	
+	public void testDescribesMismatchOfEachParameter() {
+		expectation.setParametersMatcher(new AllParametersMatcher(new Object[]{"a", "b"}));
+		
+		StringDescription description = new StringDescription();
+		expectation.describeMismatch(new Invocation(targetObject, method, "a", "c"), description);
+		
+		AssertThat.stringIncludes("should describe matching parameter", 
+		                          "parameter 0 matched: \"a\"", description.toString());
+		AssertThat.stringIncludes("should describe mismatching parameter", 
+		                          "parameter 1 did not match: \"b\"", description.toString());
+	}
+	
 	public void testDoesNotMatchIfMatchingCountMatcherDoesNotMatch() throws Throwable {
 		Invocation invocation = new Invocation("targetObject", methodFactory.newMethod("method"), Invocation.NO_PARAMETERS);
 		
@@ -263,6 +298,50 @@ public class InvocationExpectationTests extends TestCase {
                                   "invoked 3 times", StringDescription.toString(expectation));
     }
 
+    public void testTellsSatisfactionListenersOnceWhenItBecomesSatisfied() throws Throwable {
+        Invocation invocation = new Invocation(targetObject, method, Invocation.NO_PARAMETERS);
+        final List<InvocationExpectation> satisfied = new ArrayList<InvocationExpectation>();
+        
+        expectation.setCardinality(new Cardinality(2,4));
+        expectation.addSatisfactionListener(new SatisfactionListener() {
+            public void expectationSatisfied(InvocationExpectation expectation) {
+                satisfied.add(expectation);
+            }
+        });
+        
+        expectation.invoke(invocation);
+        assertTrue("should not have told listener", satisfied.isEmpty());
+        
+        expectation.invoke(invocation);
+        expectation.invoke(invocation);
+        assertEquals("listener told", Arrays.asList(expectation), satisfied);
+    }
+    
+    public void testCountsInvocationsOnlyWhileCardinalityAllowsMore() {
+        expectation.setCardinality(new Cardinality(1,2));
+        
+        assertTrue("should count first invocation", expectation.countInvocationIfAllowed());
+        assertTrue("should count second invocation", expectation.countInvocationIfAllowed());
+        assertFalse("should not count third invocation", expectation.countInvocationIfAllowed());
+        
+        AssertThat.stringIncludes("should describe invocations counted",
+                                  "invoked 2 times", StringDescription.toString(expectation));
+    }
+    
+    public void testPerformsCountedInvocationWithoutCountingItAgain() throws Throwable {
+        final Method stringReturningMethod = methodFactory.newMethod("tester", new Class<?>[0], String.class, new Class<?>[0]);
+        Invocation invocation = new Invocation(targetObject, stringReturningMethod, Invocation.NO_PARAMETERS);
+        Object result = "result";
+        expectation.setCardinality(new Cardinality(1,1));
+        expectation.setAction(new ReturnValueAction(result));
+        
+        expectation.countInvocationIfAllowed();
+        
+        assertSame("result", result, expectation.perform(invocation));
+        assertTrue("should be satisfied", expectation.isSatisfied());
+        assertFalse("should not allow more invocations", expectation.allowsMoreInvocations());
+    }
+    
     public static class FakeOrderingConstraint implements OrderingConstraint {
         public boolean allowsInvocationNow;
         
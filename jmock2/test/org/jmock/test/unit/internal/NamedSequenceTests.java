@@ -0,0 +1,58 @@
+package org.jmock.test.unit.internal;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.jmock.api.Invocation;
+import org.jmock.internal.Cardinality;
+import org.jmock.internal.InvocationExpectation;
+import org.jmock.internal.NamedSequence;
+import org.jmock.test.unit.support.MethodFactory;
+
+public class NamedSequenceTests extends TestCase {
+    MethodFactory methodFactory = new MethodFactory();
+    Method method = methodFactory.newMethod("method");
+    Invocation invocation = new Invocation("receiver", method);
+    
+    NamedSequence sequence = new NamedSequence("sequence");
+    
+    public void testAllowsInvocationOfExpectationOnlyWhenAllEarlierExpectationsAreSatisfied() throws Throwable {
+        InvocationExpectation first = expectationInSequence(Cardinality.exactly(1));
+        InvocationExpectation second = expectationInSequence(Cardinality.exactly(1));
+        InvocationExpectation third = expectationInSequence(Cardinality.exactly(1));
+        
+        assertTrue("first should match", first.matches(invocation));
+        assertFalse("second should not match", second.matches(invocation));
+        assertFalse("third should not match", third.matches(invocation));
+        
+        first.invoke(invocation);
+        assertTrue("second should match", second.matches(invocation));
+        assertFalse("third should not match", third.matches(invocation));
+        
+        second.invoke(invocation);
+        assertTrue("third should match", third.matches(invocation));
+    }
+    
+    public void testAllowsInvocationOfExpectationAfterEarlierOptionalExpectations() throws Throwable {
+        InvocationExpectation first = expectationInSequence(Cardinality.atLeast(1));
+        InvocationExpectation optional = expectationInSequence(Cardinality.atMost(1));
+        InvocationExpectation last = expectationInSequence(Cardinality.exactly(1));
+        
+        assertFalse("last should not match", last.matches(invocation));
+        
+        first.invoke(invocation);
+        assertTrue("optional should match", optional.matches(invocation));
+        assertTrue("last should match", last.matches(invocation));
+        
+        first.invoke(invocation);
+        assertTrue("last should still match", last.matches(invocation));
+    }
+    
+    private InvocationExpectation expectationInSequence(Cardinality cardinality) {
+        InvocationExpectation expectation = new InvocationExpectation();
+        expectation.setCardinality(cardinality);
+        sequence.constrainAsNextInSequence(expectation);
+        return expectation;
+    }
+}
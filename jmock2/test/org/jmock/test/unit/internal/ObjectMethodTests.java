@@ -0,0 +1,56 @@
+package org.jmock.test.unit.internal;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.jmock.internal.ObjectMethod;
+
+public class ObjectMethodTests extends TestCase {
+    public interface RedeclaresObjectMethods {
+        int hashCode();
+        String toString();
+        boolean equals(Object other);
+    }
+    
+    public interface OverloadsObjectMethodNames {
+        int hashCode(int seed);
+        String toString(String format);
+        boolean equals(String other);
+        void finalize(boolean force);
+        long hashCode(long seed);
+    }
+    
+    public void testClassifiesMethodsDefinedByObject() throws Exception {
+        assertSame(ObjectMethod.HASH_CODE, ObjectMethod.of(Object.class.getMethod("hashCode")));
+        assertSame(ObjectMethod.TO_STRING, ObjectMethod.of(Object.class.getMethod("toString")));
+        assertSame(ObjectMethod.EQUALS, ObjectMethod.of(Object.class.getMethod("equals", Object.class)));
+        assertSame(ObjectMethod.FINALIZE, ObjectMethod.of(Object.class.getDeclaredMethod("finalize")));
+    }
+    
+    public void testClassifiesObjectMethodsRedeclaredByOtherTypes() throws Exception {
+        Class<?> type = RedeclaresObjectMethods.class;
+        
+        assertSame(ObjectMethod.HASH_CODE, ObjectMethod.of(type.getMethod("hashCode")));
+        assertSame(ObjectMethod.TO_STRING, ObjectMethod.of(type.getMethod("toString")));
+        assertSame(ObjectMethod.EQUALS, ObjectMethod.of(type.getMethod("equals", Object.class)));
+    }
+    
+    public void testDoesNotClassifyOverloadsOfObjectMethodNames() throws Exception {
+        for (Method method : OverloadsObjectMethodNames.class.getDeclaredMethods()) {
+            assertSame(method.toString(), ObjectMethod.NONE, ObjectMethod.of(method));
+        }
+    }
+    
+    public void testDoesNotClassifyOtherMethods() throws Exception {
+        assertSame(ObjectMethod.NONE, ObjectMethod.of(Runnable.class.getMethod("run")));
+        assertSame(ObjectMethod.NONE, ObjectMethod.of(Object.class.getMethod("getClass")));
+    }
+    
+    public void testReportsThatMethodsWithTheReturnTypeAndNameOfAnObjectMethodMightBeObjectMethods() throws Exception {
+        assertTrue("hashCode()", ObjectMethod.mightBe(Object.class.getMethod("hashCode")));
+        assertTrue("hashCode(int)", ObjectMethod.mightBe(OverloadsObjectMethodNames.class.getMethod("hashCode", int.class)));
+        assertFalse("long hashCode(long)", ObjectMethod.mightBe(OverloadsObjectMethodNames.class.getMethod("hashCode", long.class)));
+        assertFalse("run()", ObjectMethod.mightBe(Runnable.class.getMethod("run")));
+    }
+}
@@ -72,4 +72,18 @@ public class ProxiedObjectIdentityTests extends TestCase {
         assertEquals("an Invocation of overridden toString", 
                      next.toStringResult, id.invoke(new Invocation(invokedObject, overriddenToString)));
     }
+    
+    public interface OverloadsHashCode {
+        int hashCode(int seed);
+    }
+    
+    public void testPassesOverloadsOfObjectMethodsToNextInvokableEveryTime() throws Throwable {
+        Method hashCodeOverload = OverloadsHashCode.class.getMethod("hashCode", int.class);
+        
+        for (int i = 0; i < 2; i++) {
+            next.wasInvoked = false;
+            id.invoke(new Invocation(invokedObject, hashCodeOverload, 1));
+            assertTrue("should have invoked next", next.wasInvoked);
+        }
+    }
 }
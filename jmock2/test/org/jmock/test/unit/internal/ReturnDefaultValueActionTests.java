@@ -8,6 +8,7 @@ import junit.framework.TestCase;
 import org.hamcrest.StringDescription;
 import org.jmock.api.Imposteriser;
 import org.jmock.api.Invocation;
+import org.jmock.api.Invokable;
 import org.jmock.internal.ReturnDefaultValueAction;
 import org.jmock.lib.JavaReflectionImposteriser;
 import org.jmock.test.unit.support.AssertThat;
@@ -95,6 +96,41 @@ public class ReturnDefaultValueActionTests extends TestCase {
                      null, action.invoke(invocationReturning(Runnable.class)));
     }
     
+    public void testReturnsTheSameEmptyArrayAndNullObjectForEachInvocation() throws Throwable {
+        assertSame("empty array",
+                   action.invoke(invocationReturning(int[].class)),
+                   action.invoke(invocationReturning(int[].class)));
+        assertSame("null object",
+                   action.invoke(invocationReturning(InterfaceType.class)),
+                   action.invoke(invocationReturning(InterfaceType.class)));
+    }
+    
+    public void testCreatesNullObjectsWithNewImposteriserAfterImposteriserIsChanged() throws Throwable {
+        final InterfaceType nullObjectFromNewImposteriser = new InterfaceType() {
+            public int returnInt() { return 0; }
+        };
+        
+        action.invoke(invocationReturning(InterfaceType.class));
+        action.setImposteriser(new JavaReflectionImposteriser() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T imposterise(Invokable mockObject, Class<T> mockedType, Class<?>... ancilliaryTypes) {
+                return (T)nullObjectFromNewImposteriser;
+            }
+        });
+        
+        assertSame(nullObjectFromNewImposteriser, action.invoke(invocationReturning(InterfaceType.class)));
+    }
+    
+    public void testReturnsExplicitlyAddedResultInsteadOfPreviouslyCreatedValue() throws Throwable {
+        int[] explicitResult = new int[]{1, 2, 3};
+        
+        action.invoke(invocationReturning(int[].class));
+        action.addResult(int[].class, explicitResult);
+        
+        assertSame(explicitResult, action.invoke(invocationReturning(int[].class)));
+    }
+    
     public void testDefaultResultsCanBeExplicitlyOverriddenByType() throws Throwable {
         int newDefaultIntResult = 20;
         String newDefaultStringResult = "hello";
@@ -0,0 +1,37 @@
+package org.jmock.test.unit.internal;
+
+import junit.framework.TestCase;
+
+import org.jmock.internal.SearchingClassLoader;
+import org.jmock.test.unit.support.SyntheticEmptyInterfaceClassLoader;
+
+public class SearchingClassLoaderTests extends TestCase {
+    ClassLoader loader1 = new SyntheticEmptyInterfaceClassLoader();
+    ClassLoader loader2 = new SyntheticEmptyInterfaceClassLoader();
+    
+    public void testSearchesLoadersInOrder() throws ClassNotFoundException {
+        Class<?> type = loader2.loadClass("$Type$");
+        
+        ClassLoader combined = SearchingClassLoader.combine(getClass().getClassLoader(), loader2, loader1);
+        
+        assertSame(type, combined.loadClass("$Type$"));
+    }
+    
+    public void testReturnsSameLoaderWhenCombiningSameLoaders() {
+        assertSame(SearchingClassLoader.combine(loader1, loader2), 
+                   SearchingClassLoader.combine(loader1, loader2));
+    }
+    
+    public void testReturnsDifferentLoadersWhenCombiningDifferentLoaders() {
+        assertNotSame(SearchingClassLoader.combine(loader1, loader2), 
+                      SearchingClassLoader.combine(loader2, loader1));
+    }
+    
+    public void testReturnsSameLoaderWhenCombiningLoadersOfSameClasses() throws ClassNotFoundException {
+        Class<?> type1 = loader1.loadClass("$Type1$");
+        Class<?> type2 = loader2.loadClass("$Type2$");
+        
+        assertSame(SearchingClassLoader.combineLoadersOf(type1, new Class<?>[]{type2}), 
+                   SearchingClassLoader.combineLoadersOf(type1, new Class<?>[]{type2}));
+    }
+}
@@ -1,13 +1,17 @@
 package org.jmock.test.unit.internal;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import junit.framework.TestCase;
 
 import org.hamcrest.StringDescription;
 import org.jmock.States;
+import org.jmock.internal.StateChangeListener;
 import org.jmock.internal.StateMachine;
+import org.jmock.internal.StateMachinePredicate;
 
 public class StateMachineTests extends TestCase {
     States stateMachine = new StateMachine("stateMachineName");
@@ -117,6 +121,46 @@ public class StateMachineTests extends TestCase {
         assertEquals("stateMachineName is not A", StringDescription.toString(stateMachine.isNot("A")));
     }
     
+    public void testTellsListenersWhenItChangesState() {
+        StateMachine stateMachine = new StateMachine("stateMachineName");
+        RecordingListener listener = new RecordingListener();
+        stateMachine.addStateChangeListener(listener);
+        
+        stateMachine.startsAs("A");
+        stateMachine.is("B").activate();
+        stateMachine.become("C");
+        
+        assertEquals("number of state changes", 3, listener.changes.size());
+        assertSame(stateMachine, listener.changes.get(0));
+    }
+    
+    public void testDoesNotTellListenersWhenItEntersTheStateItIsAlreadyIn() {
+        StateMachine stateMachine = new StateMachine("stateMachineName");
+        stateMachine.startsAs("A");
+        RecordingListener listener = new RecordingListener();
+        stateMachine.addStateChangeListener(listener);
+        
+        stateMachine.become("A");
+        stateMachine.is("A").activate();
+        
+        assertEquals("number of state changes", 0, listener.changes.size());
+    }
+    
+    public void testStatePredicatesReferToTheirStateMachine() {
+        StateMachine stateMachine = new StateMachine("stateMachineName");
+        
+        assertSame(stateMachine, ((StateMachinePredicate)stateMachine.is("A")).stateMachine());
+        assertSame(stateMachine, ((StateMachinePredicate)stateMachine.isNot("A")).stateMachine());
+    }
+    
+    private static class RecordingListener implements StateChangeListener {
+        public final List<StateMachine> changes = new ArrayList<StateMachine>();
+        
+        public void stateChanged(StateMachine stateMachine) {
+            changes.add(stateMachine);
+        }
+    }
+    
     private <T> Set<T> except(Set<T> s, T e) {
         Set<T> result = new HashSet<T>(s);
         result.remove(e);
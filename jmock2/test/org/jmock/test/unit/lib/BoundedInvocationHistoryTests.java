@@ -0,0 +1,58 @@
+package org.jmock.test.unit.lib;
+
+import static org.hamcrest.StringDescription.asString;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.jmock.api.Invocation;
+import org.jmock.lib.BoundedInvocationHistory;
+import org.jmock.test.unit.support.AssertThat;
+import org.jmock.test.unit.support.MethodFactory;
+
+public class BoundedInvocationHistoryTests extends TestCase {
+    MethodFactory methodFactory = new MethodFactory();
+    Method method = methodFactory.newMethod("method", new Class<?>[]{int.class}, void.class, new Class<?>[0]);
+    
+    BoundedInvocationHistory history = new BoundedInvocationHistory(3);
+    
+    public void testDescribesNothingWhenNoInvocationsRecorded() {
+        assertEquals(" nothing!", asString(history));
+    }
+    
+    public void testDescribesAllInvocationsWhenFewerThanCapacityRecorded() {
+        history.record(invocationWith(1));
+        history.record(invocationWith(2));
+        
+        String description = asString(history);
+        AssertThat.stringIncludes("first invocation", "method(<1>)", description);
+        AssertThat.stringIncludes("second invocation", "method(<2>)", description);
+        AssertThat.stringExcludes("no invocations discarded", "not shown", description);
+    }
+    
+    public void testDescribesOnlyMostRecentInvocationsInOrderAndHowManyWereDiscarded() {
+        for (int i = 1; i <= 5; i++) {
+            history.record(invocationWith(i));
+        }
+        
+        String description = asString(history);
+        AssertThat.stringIncludes("discarded invocations", "2 earlier invocations not shown", description);
+        AssertThat.stringExcludes("discarded invocation", "method(<2>)", description);
+        assertTrue("should describe most recent invocations in order", 
+                   description.indexOf("method(<3>)") < description.indexOf("method(<4>)") 
+                   && description.indexOf("method(<4>)") < description.indexOf("method(<5>)"));
+    }
+    
+    public void testCannotHaveCapacityLessThanOne() {
+        try {
+            new BoundedInvocationHistory(0);
+            fail("should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {}
+    }
+    
+    private Invocation invocationWith(int arg) {
+        return new Invocation("receiver", method, arg);
+    }
+}
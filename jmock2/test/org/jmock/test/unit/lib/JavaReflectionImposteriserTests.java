@@ -42,6 +42,15 @@ public class JavaReflectionImposteriserTests extends TestCase {
         assertTrue(interfaceClass.isInstance(o));
     }
     
+    public void testReusesProxyClassForTypesFromTheSameClassLoaders() throws ClassNotFoundException {
+        Class<?> interfaceClass = (new SyntheticEmptyInterfaceClassLoader()).loadClass("$UniqueTypeName$");
+        
+        Object o1 = imposteriser.imposterise(mockObject, interfaceClass, CaptureControl.class);
+        Object o2 = imposteriser.imposterise(mockObject, interfaceClass, CaptureControl.class);
+        
+        assertSame("proxy class", o1.getClass(), o2.getClass());
+    }
+    
     public void testCanSimultaneouslyMockTypesFromMultipleClassLoaders() throws ClassNotFoundException {
         Class<?> interfaceClass1 = (new SyntheticEmptyInterfaceClassLoader()).loadClass("$UniqueTypeName1$");
         Class<?> interfaceClass2 = CaptureControl.class;
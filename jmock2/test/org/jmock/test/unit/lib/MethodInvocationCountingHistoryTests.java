@@ -0,0 +1,43 @@
+package org.jmock.test.unit.lib;
+
+import static org.hamcrest.StringDescription.asString;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.jmock.api.Invocation;
+import org.jmock.lib.MethodInvocationCountingHistory;
+import org.jmock.test.unit.support.AssertThat;
+import org.jmock.test.unit.support.MethodFactory;
+
+public class MethodInvocationCountingHistoryTests extends TestCase {
+    MethodFactory methodFactory = new MethodFactory();
+    Method methodA = methodFactory.newMethod("methodA", new Class<?>[]{int.class}, void.class, new Class<?>[0]);
+    Method methodB = methodFactory.newMethod("methodB");
+    
+    MethodInvocationCountingHistory history = new MethodInvocationCountingHistory();
+    
+    public void testDescribesNothingWhenNoInvocationsRecorded() {
+        assertEquals(" nothing!", asString(history));
+    }
+    
+    public void testDescribesNumberOfInvocationsOfEachMethodOfEachReceiver() {
+        history.record(new Invocation("receiver1", methodA, 1));
+        history.record(new Invocation("receiver1", methodA, 2));
+        history.record(new Invocation("receiver2", methodA, 3));
+        history.record(new Invocation("receiver1", methodB));
+        
+        String description = asString(history);
+        AssertThat.stringIncludes("total", "4 invocations", description);
+        AssertThat.stringIncludes("receiver1.methodA", "receiver1.methodA(...): 2 times", description);
+        AssertThat.stringIncludes("receiver2.methodA", "receiver2.methodA(...): 1 time", description);
+        AssertThat.stringIncludes("receiver1.methodB", "receiver1.methodB(...): 1 time", description);
+    }
+    
+    public void testDoesNotDescribeParameters() {
+        history.record(new Invocation("receiver", methodA, 12345));
+        
+        AssertThat.stringExcludes("parameter", "12345", asString(history));
+    }
+}
@@ -0,0 +1,68 @@
+package org.jmock.test.unit.lib;
+
+import static org.hamcrest.StringDescription.asString;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jmock.api.Invocation;
+import org.jmock.api.RecordedInvocation;
+import org.jmock.lib.SnapshotParameterRetention;
+import org.jmock.test.unit.support.MethodFactory;
+
+public class SnapshotParameterRetentionTests extends TestCase {
+    MethodFactory methodFactory = new MethodFactory();
+    Method method = methodFactory.newMethod("method", new Class<?>[]{Object.class}, void.class, new Class<?>[0]);
+    
+    public void testDescribesInvocationAsItWasWhenRecorded() {
+        List<String> parameter = new ArrayList<String>();
+        parameter.add("before");
+        
+        RecordedInvocation recorded = new SnapshotParameterRetention(100).retain(
+            new Invocation("receiver", method, parameter));
+        parameter.add("after");
+        
+        assertEquals("receiver.method(<[before]>)", asString(recorded));
+    }
+    
+    public void testTruncatesLongDescriptions() {
+        RecordedInvocation recorded = new SnapshotParameterRetention(20).retain(
+            new Invocation("receiver", method, "a very long string parameter"));
+        
+        assertEquals("receiver.method(\"...", asString(recorded));
+    }
+    
+    public void testDoesNotTruncateDescriptionsOfTheMaximumLength() {
+        RecordedInvocation recorded = new SnapshotParameterRetention(24).retain(
+            new Invocation("receiver", method, "param"));
+        
+        assertEquals("receiver.method(\"param\")", asString(recorded));
+    }
+    
+    public void testStopsDescribingParametersOnceTheMaximumLengthIsReached() {
+        Method twoParameterMethod = methodFactory.newMethod("method", 
+            new Class<?>[]{Object.class, Object.class}, void.class, new Class<?>[0]);
+        Object undescribable = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("should not have described parameter");
+            }
+        };
+        
+        RecordedInvocation recorded = new SnapshotParameterRetention(20).retain(
+            new Invocation("receiver", twoParameterMethod, "a very long string parameter", undescribable));
+        
+        assertEquals("receiver.method(\"...", asString(recorded));
+    }
+    
+    public void testCannotHaveMaximumLengthShorterThanTruncationMarker() {
+        try {
+            new SnapshotParameterRetention(2);
+            fail("should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {}
+    }
+}
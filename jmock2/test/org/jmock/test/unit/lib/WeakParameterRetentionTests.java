@@ -0,0 +1,39 @@
+package org.jmock.test.unit.lib;
+
+import static org.hamcrest.StringDescription.asString;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.jmock.api.Invocation;
+import org.jmock.api.RecordedInvocation;
+import org.jmock.lib.WeakParameterRetention;
+import org.jmock.test.unit.support.MethodFactory;
+
+public class WeakParameterRetentionTests extends TestCase {
+    MethodFactory methodFactory = new MethodFactory();
+    Method method = methodFactory.newMethod("method", new Class<?>[]{Object.class, Object.class}, void.class, new Class<?>[0]);
+    
+    public void testDescribesInvocationLikeTheInvocationItselfWhileParametersAreAlive() {
+        Invocation invocation = new Invocation("receiver", method, "x", null);
+        
+        RecordedInvocation recorded = WeakParameterRetention.INSTANCE.retain(invocation);
+        
+        assertEquals(asString(invocation), asString(recorded));
+        assertSame("invoked object", invocation.getInvokedObject(), recorded.getInvokedObject());
+        assertSame("invoked method", invocation.getInvokedMethod(), recorded.getInvokedMethod());
+    }
+    
+    public void testDoesNotKeepParametersAlive() throws InterruptedException {
+        RecordedInvocation recorded = WeakParameterRetention.INSTANCE.retain(
+            new Invocation("receiver", method, new byte[1024*1024], "x"));
+        
+        for (int i = 0; i < 10 && !asString(recorded).contains("garbage collected"); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        
+        assertEquals("receiver.method(<garbage collected>, \"x\")", asString(recorded));
+    }
+}
@@ -1,13 +1,23 @@
 package org.jmock.test.unit.lib.concurrent;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
+import org.jmock.lib.concurrent.BlitzResult;
 import org.jmock.lib.concurrent.Blitzer;
 import org.junit.After;
 
@@ -45,7 +55,202 @@ public class BlitzerTests extends TestCase {
         // thread reaches here and does not time out
     }
     
+    public void testCanUseAnExecutorThatBlocksWhenItsQueueIsFull() throws InterruptedException, TimeoutException {
+        final AtomicInteger actualActionCount = new AtomicInteger();
+        
+        Blitzer boundedBlitzer = new Blitzer(actionCount, 
+            new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1),
+                new RejectedExecutionHandler() {
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                        try {
+                            executor.getQueue().put(task);
+                        }
+                        catch (InterruptedException e) {
+                            throw new RejectedExecutionException(e);
+                        }
+                    }
+                }));
+        try {
+            boundedBlitzer.blitz(1000, new Runnable() {
+                public void run() {
+                    actualActionCount.incrementAndGet();
+                }
+            });
+        }
+        finally {
+            boundedBlitzer.shutdown();
+        }
+        
+        assertThat(actualActionCount.get(), equalTo(actionCount));
+    }
+    
     public void testReportsTheTotalNumberOfActions() {
         assertThat(blitzer.totalActionCount(), equalTo(actionCount));
     }
+    
+    public void testReportsThroughputAndLatencyOfTheActions() throws InterruptedException {
+        BlitzResult result = blitzer.blitzWithResult(new Runnable() {
+            public void run() {
+                sleep(1);
+            }
+        });
+        
+        assertThat(result.actionCount(), equalTo((long)actionCount));
+        assertThat(result.actionsPerSecond(), greaterThan(0.0));
+        assertThat(result.medianLatency(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertThat(result.p99Latency(), greaterThanOrEqualTo(result.medianLatency()));
+        assertThat(result.p999Latency(), greaterThanOrEqualTo(result.p99Latency()));
+        assertThat(result.elapsedTime(TimeUnit.MILLISECONDS), 
+                   greaterThanOrEqualTo((long)(actionCount / threadCount)));
+    }
+    
+    public void testReleasesTheActionsOnlyOnceTheyHaveAllBeenSubmitted() throws InterruptedException {
+        final AtomicInteger submittedCount = new AtomicInteger();
+        final AtomicInteger releasedEarlyCount = new AtomicInteger();
+        
+        Blitzer countingBlitzer = new Blitzer(actionCount, 
+            new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>()) {
+                @Override
+                public void execute(Runnable command) {
+                    super.execute(command);
+                    submittedCount.incrementAndGet();
+                }
+            });
+        
+        try {
+            countingBlitzer.blitzWithResult(new Runnable() {
+                public void run() {
+                    if (submittedCount.get() < actionCount) {
+                        releasedEarlyCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+        finally {
+            countingBlitzer.shutdown();
+        }
+        
+        assertThat(releasedEarlyCount.get(), equalTo(0));
+    }
+    
+    public void testCanUseAnExecutorThatRunsActionsOnTheSubmittingThread() throws InterruptedException, TimeoutException {
+        final AtomicInteger actualActionCount = new AtomicInteger();
+        
+        Blitzer callerRunsBlitzer = new Blitzer(actionCount, callerRunsExecutor());
+        try {
+            callerRunsBlitzer.blitzWithResult(1000, new Runnable() {
+                public void run() {
+                    actualActionCount.incrementAndGet();
+                }
+            });
+        }
+        finally {
+            callerRunsBlitzer.shutdown();
+        }
+        
+        assertThat(actualActionCount.get(), equalTo(actionCount));
+    }
+    
+    public void testRejectsAnExecutorThatRunsActionsOnTheThreadThatStartsATimedBlitz() throws InterruptedException {
+        Blitzer callerRunsBlitzer = new Blitzer(actionCount, threadCount, callerRunsExecutor());
+        try {
+            callerRunsBlitzer.blitzFor(0, 10, TimeUnit.SECONDS, new Runnable() {
+                public void run() {}
+            });
+            fail("should have thrown RejectedExecutionException");
+        }
+        catch (RejectedExecutionException expected) {}
+        finally {
+            callerRunsBlitzer.shutdown();
+        }
+    }
+    
+    public void testPerformsActionsRepeatedlyForAPeriodOfTime() throws InterruptedException {
+        final AtomicInteger performedCount = new AtomicInteger();
+        
+        BlitzResult result = blitzer.blitzFor(20, 50, TimeUnit.MILLISECONDS, new Runnable() {
+            public void run() {
+                performedCount.incrementAndGet();
+                sleep(1);
+            }
+        });
+        
+        assertThat(result.actionCount(), greaterThan(0L));
+        assertThat("actions performed, including warm-up",
+                   (long)performedCount.get(), greaterThan(result.actionCount()));
+        assertThat(result.elapsedTime(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(50L));
+        assertThat(result.medianLatency(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+    
+    public void testStopsAllThreadsAndRethrowsTheFailureWhenAnActionFails() throws InterruptedException {
+        final AtomicInteger performedCount = new AtomicInteger();
+        final RuntimeException failure = new RuntimeException("boom!");
+        long start = System.currentTimeMillis();
+        
+        try {
+            blitzer.blitzFor(0, 10, TimeUnit.SECONDS, new Runnable() {
+                public void run() {
+                    if (performedCount.incrementAndGet() == 100) {
+                        throw failure;
+                    }
+                }
+            });
+            fail("should have thrown the action's exception");
+        }
+        catch (RuntimeException e) {
+            assertSame(failure, e);
+        }
+        
+        assertThat("should have stopped well before the end of the measurement time", 
+                   System.currentTimeMillis() - start < 5000, equalTo(true));
+    }
+    
+    public void testCanPerformEachActionOnAVirtualThreadIfTheJDKSupportsThem() throws InterruptedException {
+        if (!Blitzer.virtualThreadsAreAvailable()) {
+            try {
+                Blitzer.withVirtualThreads(actionCount);
+                fail("should have thrown UnsupportedOperationException");
+            }
+            catch (UnsupportedOperationException expected) {}
+            return;
+        }
+        
+        final AtomicInteger actualActionCount = new AtomicInteger();
+        Blitzer virtualBlitzer = Blitzer.withVirtualThreads(actionCount);
+        try {
+            BlitzResult result = virtualBlitzer.blitzWithResult(new Runnable() {
+                public void run() {
+                    actualActionCount.incrementAndGet();
+                }
+            });
+            
+            assertThat(actualActionCount.get(), equalTo(actionCount));
+            assertNotNull("should report virtual thread usage", result.virtualThreadUsage());
+        }
+        finally {
+            virtualBlitzer.shutdown();
+        }
+    }
+    
+    public void testDoesNotReportVirtualThreadUsageOfPlatformThreads() throws InterruptedException {
+        BlitzResult result = blitzer.blitzWithResult(new Runnable() {
+            public void run() {}
+        });
+        
+        assertNull(result.virtualThreadUsage());
+    }
+    
+    private static ThreadPoolExecutor callerRunsExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(),
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
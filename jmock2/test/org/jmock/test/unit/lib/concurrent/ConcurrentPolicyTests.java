@@ -0,0 +1,151 @@
+package org.jmock.test.unit.lib.concurrent;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.MethodInvocationCountingHistory;
+import org.jmock.lib.concurrent.Blitzer;
+import org.jmock.lib.concurrent.ConcurrentPolicy;
+import org.jmock.lib.concurrent.PerThreadInvocationHistory;
+import org.junit.After;
+import org.junit.Test;
+
+public class ConcurrentPolicyTests {
+    public interface Counter {
+        int next();
+        void finished();
+    }
+    
+    Mockery mockery = new JUnit4Mockery() {{
+        setThreadingPolicy(new ConcurrentPolicy());
+        setInvocationHistory(new PerThreadInvocationHistory());
+    }};
+    
+    Blitzer blitzer = new Blitzer(1000, 4);
+    
+    Counter mockObject = mockery.mock(Counter.class, "mockObject");
+    
+    @Test(timeout=5000)
+    public void allowsMultipleThreadsToCallMockObjects() throws InterruptedException {
+        mockery.checking(new Expectations() {{
+            exactly(blitzer.totalActionCount()).of(mockObject).next(); will(returnValue(1));
+        }});
+        
+        blitzer.blitz(new Runnable() {
+            public void run() {
+                mockObject.next();
+            }
+        });
+        
+        mockery.assertIsSatisfied();
+    }
+    
+    @Test(timeout=5000)
+    public void neverInvokesAnExpectationMoreTimesThanItsCardinalityAllows() throws InterruptedException {
+        final int limitedCount = blitzer.totalActionCount() / 2;
+        final AtomicInteger limitedResults = new AtomicInteger();
+        
+        mockery.checking(new Expectations() {{
+            exactly(limitedCount).of(mockObject).next(); will(returnValue(1));
+            allowing(mockObject).next(); will(returnValue(2));
+        }});
+        
+        blitzer.blitz(new Runnable() {
+            public void run() {
+                if (mockObject.next() == 1) {
+                    limitedResults.incrementAndGet();
+                }
+            }
+        });
+        
+        assertThat(limitedResults.get(), equalTo(limitedCount));
+        mockery.assertIsSatisfied();
+    }
+    
+    @Test(timeout=5000)
+    public void reportsTheFirstFailureOfAnyThread() throws InterruptedException {
+        mockery.checking(new Expectations() {{
+            allowing(mockObject).next(); will(returnValue(1));
+        }});
+        
+        blitzer.blitz(new Runnable() {
+            public void run() {
+                mockObject.next();
+                mockObject.finished();
+            }
+        });
+        
+        try {
+            mockery.assertIsSatisfied();
+            fail("should have thrown AssertionError");
+        }
+        catch (AssertionError expected) {}
+    }
+    
+    @Test(timeout=5000)
+    public void recordsEveryInvocationInTheDefaultInvocationHistory() throws InterruptedException {
+        Mockery mockery = new JUnit4Mockery() {{
+            setThreadingPolicy(new ConcurrentPolicy());
+        }};
+        Counter mockObject = mockery.mock(Counter.class, "mockObject");
+        
+        String history = historyAfterBlitzing(mockery, mockObject);
+        
+        assertThat(occurrencesOf("mockObject.next()", history), equalTo(blitzer.totalActionCount()));
+    }
+    
+    @Test(timeout=5000)
+    public void recordsEveryInvocationInAnInvocationHistoryThatIsNotThreadSafe() throws InterruptedException {
+        Mockery mockery = new JUnit4Mockery() {{
+            setThreadingPolicy(new ConcurrentPolicy());
+            setInvocationHistory(new MethodInvocationCountingHistory());
+        }};
+        Counter mockObject = mockery.mock(Counter.class, "mockObject");
+        
+        String history = historyAfterBlitzing(mockery, mockObject);
+        
+        assertThat(history, containsString(" " + blitzer.totalActionCount() + " invocations"));
+    }
+    
+    private String historyAfterBlitzing(Mockery mockery, final Counter mockObject) throws InterruptedException {
+        mockery.checking(new Expectations() {{
+            allowing(mockObject).next(); will(returnValue(1));
+        }});
+        
+        blitzer.blitz(new Runnable() {
+            public void run() {
+                mockObject.next();
+            }
+        });
+        
+        try {
+            mockObject.finished();
+            fail("should have thrown AssertionError");
+            return null;
+        }
+        catch (AssertionError expected) {
+            String message = expected.getMessage();
+            return message.substring(message.indexOf("what happened before this:"));
+        }
+    }
+    
+    private static int occurrencesOf(String substring, String string) {
+        int count = 0;
+        for (int i = string.indexOf(substring); i >= 0; i = string.indexOf(substring, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+    
+    @After
+    public void cleanUp() {
+        blitzer.shutdown();
+    }
+}
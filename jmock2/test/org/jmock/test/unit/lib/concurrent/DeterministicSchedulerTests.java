@@ -13,12 +13,22 @@ import java.util.concurrent.TimeUnit;
 
 import org.jmock.Expectations;
 import org.jmock.Sequence;
+import org.jmock.States;
 import org.jmock.api.Action;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit3.MockObjectTestCase;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.CoalescingRunnable;
 import org.jmock.lib.concurrent.DeterministicScheduler;
 import org.jmock.lib.concurrent.UnsupportedSynchronousOperationException;
+import org.jmock.lib.concurrent.VirtualClock;
 
 public class DeterministicSchedulerTests extends MockObjectTestCase {
+    // TimeUnit only has MINUTES, HOURS and DAYS from Java 6
+    static final long ONE_MINUTE = 60;
+    static final long ONE_HOUR = 60*ONE_MINUTE;
+    static final long ONE_DAY = 24*ONE_HOUR;
+    
     DeterministicScheduler scheduler = new DeterministicScheduler();
     
     Runnable commandA = mock(Runnable.class, "commandA");
@@ -243,6 +253,201 @@ public class DeterministicSchedulerTests extends MockObjectTestCase {
         catch (UnsupportedSynchronousOperationException expected) {}
     }
     
+    public void testSchedulesCommandsWithNanosecondResolution() {
+        scheduler.schedule(commandA, 500, TimeUnit.MICROSECONDS);
+        
+        scheduler.runUntilIdle();
+        scheduler.tick(499999, TimeUnit.NANOSECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (commandA).run();
+        }});
+        
+        scheduler.tick(1, TimeUnit.NANOSECONDS);
+    }
+    
+    public void testReportsTheTimeOnItsVirtualClock() {
+        assertThat(scheduler.now(), equalTo(0L));
+        
+        scheduler.tick(3, TimeUnit.MILLISECONDS);
+        scheduler.tick(250, TimeUnit.MICROSECONDS);
+        
+        assertThat(scheduler.now(), equalTo(3250000L));
+        assertThat(scheduler.currentTime(TimeUnit.MICROSECONDS), equalTo(3250L));
+        assertThat(scheduler.currentTime(TimeUnit.MILLISECONDS), equalTo(3L));
+    }
+    
+    public void testTickingTimeForwardAdvancesTheClockPastTheLastScheduledCommand() {
+        scheduler.schedule(commandA, 1, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (commandA).run();
+        }});
+        
+        scheduler.tick(10, TimeUnit.SECONDS);
+        
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(10L));
+    }
+    
+    public void testReportsTheDelayUntilAScheduledCommandIsDue() {
+        ScheduledFuture<?> future = scheduler.schedule(commandA, 10, TimeUnit.SECONDS);
+        
+        scheduler.tick(4, TimeUnit.SECONDS);
+        
+        assertThat(future.getDelay(TimeUnit.SECONDS), equalTo(6L));
+        assertThat(future.getDelay(TimeUnit.MILLISECONDS), equalTo(6000L));
+    }
+    
+    public void testOrdersScheduledFuturesByTheirDelay() {
+        ScheduledFuture<?> sooner = scheduler.schedule(commandA, 1, TimeUnit.SECONDS);
+        ScheduledFuture<?> later = scheduler.schedule(commandB, 2, TimeUnit.SECONDS);
+        ScheduledFuture<?> alsoLater = scheduler.schedule(commandC, 2000, TimeUnit.MILLISECONDS);
+        
+        assertTrue("sooner before later", sooner.compareTo(later) < 0);
+        assertTrue("later after sooner", later.compareTo(sooner) > 0);
+        assertThat(later.compareTo(alsoLater), equalTo(0));
+    }
+    
+    public void testCanAdvanceTimeToTheNextScheduledCommand() {
+        scheduler.schedule(commandA, ONE_DAY, TimeUnit.SECONDS);
+        scheduler.schedule(commandB, 2*ONE_DAY, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (commandA).run();
+        }});
+        
+        assertTrue("should have advanced", scheduler.advanceToNextEvent());
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(ONE_DAY));
+        
+        checking(new Expectations() {{
+            oneOf (commandB).run();
+        }});
+        
+        assertTrue("should have advanced", scheduler.advanceToNextEvent());
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(2*ONE_DAY));
+        
+        assertFalse("should not advance when nothing is scheduled", scheduler.advanceToNextEvent());
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(2*ONE_DAY));
+    }
+    
+    public void testCanRunUntilAStatePredicateBecomesActive() {
+        final States progress = states("progress").startsAs("waiting");
+        scheduler.scheduleWithFixedDelay(commandA, ONE_HOUR, ONE_HOUR, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            exactly(2).of (commandA).run();
+            oneOf (commandA).run(); then(progress.is("done"));
+        }});
+        
+        assertTrue("should have become done", 
+                   scheduler.runUntil(progress.is("done"), 7*ONE_DAY, TimeUnit.SECONDS));
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(3*ONE_HOUR));
+    }
+    
+    public void testRunsUntilTheMaximumTimeIfTheStatePredicateDoesNotBecomeActive() {
+        final States progress = states("progress").startsAs("waiting");
+        scheduler.schedule(commandA, ONE_HOUR, TimeUnit.SECONDS);
+        scheduler.schedule(commandB, ONE_DAY, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (commandA).run();
+            never (commandB);
+        }});
+        
+        assertFalse("should not have become done", 
+                    scheduler.runUntil(progress.is("done"), 10*ONE_HOUR, TimeUnit.SECONDS));
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(10*ONE_HOUR));
+    }
+    
+    public void testRunsCoalescingRepeatingCommandsOnceForAllThePeriodsInATick() {
+        final CoalescingRunnable coalescingCommand = mock(CoalescingRunnable.class);
+        scheduler.scheduleAtFixedRate(coalescingCommand, ONE_MINUTE, ONE_MINUTE, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (coalescingCommand).run(7*24*60);
+        }});
+        
+        scheduler.tick(7*ONE_DAY, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (coalescingCommand).run(1);
+        }});
+        
+        scheduler.advanceToNextEvent();
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(7*ONE_DAY + ONE_MINUTE));
+    }
+    
+    public void testMovesItsClockForwardAsTimePasses() {
+        final VirtualClock clock = new VirtualClock(1000L);
+        final DeterministicScheduler clockedScheduler = new DeterministicScheduler(clock);
+        final Runnable timeReader = mock(Runnable.class, "timeReader");
+        
+        clockedScheduler.schedule(timeReader, 2, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (timeReader).run(); will(checkTime(clock, 2000000000L));
+        }});
+        
+        clockedScheduler.tick(5, TimeUnit.SECONDS);
+        
+        assertThat(clock.nanoTime(), equalTo(5000000000L));
+        assertThat(clock.currentTimeMillis(), equalTo(6000L));
+        assertSame(clock, clockedScheduler.clock());
+    }
+    
+    public void testRunsCommandsScheduledWithANegativeDelayImmediatelyWithoutMovingTheClockBackwards() {
+        scheduler.tick(1, TimeUnit.SECONDS);
+        scheduler.schedule(commandA, -1, TimeUnit.SECONDS);
+        scheduler.schedule(commandB, 1, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (commandA).run();
+        }});
+        
+        scheduler.tick(500, TimeUnit.MILLISECONDS);
+        
+        assertThat(scheduler.currentTime(TimeUnit.MILLISECONDS), equalTo(1500L));
+        assertThat(scheduler.clock().nanoTime(), equalTo(scheduler.now()));
+    }
+    
+    public void testCanAdvanceToACommandScheduledWithANegativeOrZeroDelay() {
+        scheduler.tick(1, TimeUnit.SECONDS);
+        scheduler.schedule(commandA, -1, TimeUnit.SECONDS);
+        scheduler.schedule(commandB, 0, TimeUnit.SECONDS);
+        
+        checking(new Expectations() {{
+            oneOf (commandA).run();
+            oneOf (commandB).run();
+        }});
+        
+        assertTrue("should have advanced", scheduler.advanceToNextEvent());
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(1L));
+        assertThat(scheduler.clock().nanoTime(), equalTo(scheduler.now()));
+    }
+    
+    public void testTickingByANegativeOrZeroDurationRunsPendingCommandsWithoutMovingTheClock() {
+        scheduler.tick(1, TimeUnit.SECONDS);
+        scheduler.execute(commandA);
+        
+        checking(new Expectations() {{
+            oneOf (commandA).run();
+        }});
+        
+        scheduler.tick(0, TimeUnit.SECONDS);
+        scheduler.tick(-1, TimeUnit.SECONDS);
+        
+        assertThat(scheduler.currentTime(TimeUnit.SECONDS), equalTo(1L));
+    }
+    
+    private Action checkTime(final VirtualClock clock, final long expectedNanoTime) {
+        return new CustomAction("check time") {
+            public Object invoke(Invocation invocation) {
+                assertThat(clock.nanoTime(), equalTo(expectedNanoTime));
+                return null;
+            }
+        };
+    }
+    
     private Action schedule(final Runnable command) {
         return ScheduleOnExecutorAction.schedule(scheduler, command);
     }
@@ -0,0 +1,107 @@
+package org.jmock.test.unit.lib.concurrent;
+
+import static org.hamcrest.StringDescription.asString;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.jmock.api.Invocation;
+import org.jmock.lib.concurrent.PerThreadInvocationHistory;
+import org.jmock.test.unit.support.AssertThat;
+import org.jmock.test.unit.support.MethodFactory;
+
+public class PerThreadInvocationHistoryTests extends TestCase {
+    MethodFactory methodFactory = new MethodFactory();
+    Method method = methodFactory.newMethod("method", new Class<?>[]{int.class}, void.class, new Class<?>[0]);
+    
+    PerThreadInvocationHistory history = new PerThreadInvocationHistory();
+    
+    public void testDescribesNothingWhenNoInvocationsRecorded() {
+        assertEquals(" nothing!", asString(history));
+    }
+    
+    public void testDescribesInvocationsOfAllThreadsInTheOrderTheyWereRecorded() throws InterruptedException {
+        history.record(invocationWith(1));
+        recordOnThread("other-thread", 2, 3);
+        history.record(invocationWith(4));
+        
+        String description = asString(history);
+        String testThread = Thread.currentThread().getName();
+        
+        assertInOrder(description, 
+                      testThread + ": receiver.method(<1>)",
+                      "other-thread: receiver.method(<2>)",
+                      "other-thread: receiver.method(<3>)",
+                      testThread + ": receiver.method(<4>)");
+    }
+    
+    // Chunks of 4, 8, 16, 32, 64, 128 and then 256 invocations
+    public void testDescribesInvocationsRecordedBeyondTheFirstChunkOfALog() throws InterruptedException {
+        int[] args = new int[1000];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = i;
+        }
+        recordOnThread("other-thread", args);
+        
+        String description = asString(history);
+        
+        assertInOrder(description, "method(<0>)", "method(<3>)", "method(<4>)", 
+                      "method(<251>)", "method(<252>)", "method(<507>)", "method(<508>)", "method(<999>)");
+    }
+    
+    public void testMergesInvocationsRecordedConcurrentlyBySequenceNumber() throws InterruptedException {
+        final int threadCount = 4;
+        final int invocationsPerThread = 500;
+        
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread("thread-" + t) {
+                @Override
+                public void run() {
+                    for (int i = 0; i < invocationsPerThread; i++) {
+                        history.record(invocationWith(i));
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        
+        String description = asString(history);
+        for (int t = 0; t < threadCount; t++) {
+            assertInOrder(description, 
+                          "thread-" + t + ": receiver.method(<0>)", 
+                          "thread-" + t + ": receiver.method(<" + (invocationsPerThread-1) + ">)");
+        }
+        assertEquals("number of invocations described", 
+                     threadCount*invocationsPerThread, description.split("receiver.method").length - 1);
+    }
+    
+    private void assertInOrder(String description, String... substrings) {
+        int previous = -1;
+        for (String substring : substrings) {
+            AssertThat.stringIncludes("invocation", substring, description);
+            int index = description.indexOf(substring);
+            assertTrue("should describe " + substring + " after previous invocations", index > previous);
+            previous = index;
+        }
+    }
+    
+    private void recordOnThread(String name, final int... args) throws InterruptedException {
+        Thread thread = new Thread(name) {
+            @Override
+            public void run() {
+                for (int arg : args) {
+                    history.record(invocationWith(arg));
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+    }
+    
+    private Invocation invocationWith(int arg) {
+        return new Invocation("receiver", method, arg);
+    }
+}
@@ -0,0 +1,182 @@
+package org.jmock.test.unit.lib.concurrent;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jmock.lib.concurrent.SimulatedForkJoinExecutor;
+import org.jmock.lib.concurrent.SimulatedForkJoinExecutor.Order;
+import org.jmock.lib.concurrent.SimulatedForkJoinExecutor.Task;
+
+public class SimulatedForkJoinExecutorTests extends TestCase {
+    List<String> computedRanges = new ArrayList<String>();
+    
+    public class SumTask extends Task<Integer> {
+        private final int from;
+        private final int to;
+        private final int threshold;
+        
+        public SumTask(int from, int to, int threshold) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+        
+        @Override
+        protected Integer compute() {
+            if (to - from <= threshold) {
+                computedRanges.add(from + "-" + to);
+                int sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += i;
+                }
+                return sum;
+            }
+            
+            int middle = (from + to) / 2;
+            SumTask left = new SumTask(from, middle, threshold);
+            SumTask right = new SumTask(middle, to, threshold);
+            left.fork();
+            right.fork();
+            return right.join() + left.join();
+        }
+    }
+    
+    public void testComputesTheResultOfTheInvokedTask() {
+        SimulatedForkJoinExecutor executor = new SimulatedForkJoinExecutor();
+        
+        assertThat(executor.invoke(new SumTask(0, 100, 10)), equalTo(4950));
+        assertTrue("should be idle", executor.isIdle());
+    }
+    
+    public void testCountsTheTasksCreatedAtEachLevel() {
+        SimulatedForkJoinExecutor executor = new SimulatedForkJoinExecutor();
+        
+        executor.invoke(new SumTask(0, 100, 25));
+        
+        assertThat(executor.taskCountsPerLevel(), equalTo(asList(1, 2, 4)));
+        assertThat(executor.taskCount(), equalTo(7));
+    }
+    
+    public void testRunsMostRecentlyForkedTasksFirstInLIFOOrder() {
+        new SimulatedForkJoinExecutor(Order.LIFO).invoke(new SumTask(0, 4, 1));
+        
+        assertThat(computedRanges, equalTo(asList("3-4", "2-3", "1-2", "0-1")));
+    }
+    
+    public void testRunsLeastRecentlyForkedTasksFirstInFIFOOrder() {
+        new SimulatedForkJoinExecutor(Order.FIFO).invoke(new SumTask(0, 4, 1));
+        
+        assertThat(computedRanges, equalTo(asList("0-1", "1-2", "2-3", "3-4")));
+    }
+    
+    public void testRunsTasksInTheSameRandomOrderForTheSameSeed() {
+        List<List<String>> ordersForSameSeed = new ArrayList<List<String>>();
+        for (int i = 0; i < 2; i++) {
+            computedRanges = new ArrayList<String>();
+            assertThat(new SimulatedForkJoinExecutor(Order.RANDOM, 42L).invoke(new SumTask(0, 64, 1)), 
+                       equalTo(2016));
+            ordersForSameSeed.add(computedRanges);
+        }
+        
+        assertThat(ordersForSameSeed.get(1), equalTo(ordersForSameSeed.get(0)));
+    }
+    
+    public void testReportsTheLevelOfEachTask() {
+        final List<Integer> levels = new ArrayList<Integer>();
+        
+        new SimulatedForkJoinExecutor().invoke(new Task<Void>() {
+            @Override
+            protected Void compute() {
+                levels.add(level());
+                Task.invokeAll(new Task<Void>() {
+                    @Override
+                    protected Void compute() {
+                        levels.add(level());
+                        return null;
+                    }
+                }, new Task<Void>() {
+                    @Override
+                    protected Void compute() {
+                        levels.add(level());
+                        return null;
+                    }
+                });
+                return null;
+            }
+        });
+        
+        assertThat(levels, equalTo(asList(0, 1, 1)));
+    }
+    
+    public void testRethrowsExceptionsThrownByTasksWhenTheyAreJoined() {
+        final RuntimeException thrown = new RuntimeException("boom!");
+        
+        try {
+            new SimulatedForkJoinExecutor().invoke(new Task<Void>() {
+                @Override
+                protected Void compute() {
+                    Task<Void> failing = new Task<Void>() {
+                        @Override
+                        protected Void compute() {
+                            throw thrown;
+                        }
+                    };
+                    failing.fork();
+                    return failing.join();
+                }
+            });
+            fail("should have thrown the exception");
+        }
+        catch (RuntimeException expected) {
+            assertSame(thrown, expected);
+        }
+    }
+    
+    public void testDiscardsTheSubtasksOfAComputationThatFailedWithAnError() {
+        final AssertionError thrown = new AssertionError("boom!");
+        SimulatedForkJoinExecutor executor = new SimulatedForkJoinExecutor();
+        
+        try {
+            executor.invoke(new Task<Void>() {
+                @Override
+                protected Void compute() {
+                    new SumTask(0, 1, 1).fork();
+                    new SumTask(1, 2, 1).fork();
+                    throw thrown;
+                }
+            });
+            fail("should have thrown the error");
+        }
+        catch (AssertionError expected) {
+            assertSame(thrown, expected);
+        }
+        
+        assertTrue("should be idle", executor.isIdle());
+        
+        executor.invoke(new SumTask(10, 11, 1));
+        
+        assertThat(computedRanges, equalTo(asList("10-11")));
+    }
+    
+    public void testCannotJoinATaskThatHasNotBeenForked() {
+        try {
+            new SumTask(0, 1, 1).join();
+            fail("should have thrown IllegalStateException");
+        }
+        catch (IllegalStateException expected) {}
+    }
+    
+    public void testCannotForkATaskOutsideAComputation() {
+        try {
+            new SumTask(0, 1, 1).fork();
+            fail("should have thrown IllegalStateException");
+        }
+        catch (IllegalStateException expected) {}
+    }
+}
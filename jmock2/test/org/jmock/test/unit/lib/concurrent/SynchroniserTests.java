@@ -1,15 +1,23 @@
 package org.jmock.test.unit.lib.concurrent;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.hamcrest.Description;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.States;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.internal.StateMachine;
+import org.jmock.internal.StateMachinePredicate;
+import org.jmock.internal.StatePredicate;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.lib.concurrent.Blitzer;
 import org.jmock.lib.concurrent.Synchroniser;
 import org.junit.After;
@@ -165,6 +173,122 @@ public class SynchroniserTests {
         }
     }
     
+    @Test(timeout=250)
+    public void wakesWaitingThreadWhenStateMachineChangesStateOutsideOfAnInvocation() throws InterruptedException {
+        final States threads = mockery.states("threads");
+        
+        Thread background = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                threads.become("finished");
+            }
+        };
+        background.start();
+        
+        synchroniser.waitUntil(threads.is("finished"), 200);
+        background.join();
+    }
+    
+    @Test(timeout=1000)
+    public void doesNotWakeThreadsWaitingForAStateMachineOnInvocationsThatDoNotChangeItsState() throws InterruptedException {
+        final States threads = mockery.states("threads");
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final CountingPredicate finished = new CountingPredicate(threads.is("finished"), waiting);
+        
+        mockery.checking(new Expectations() {{
+            allowing(mockObject).action();
+            oneOf(mockObject).finished();
+                then(threads.is("finished"));
+        }});
+        
+        Thread background = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    waiting.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    mockObject.action();
+                }
+                mockObject.finished();
+            }
+        };
+        background.start();
+        
+        synchroniser.waitUntil(finished, 500);
+        background.join();
+        
+        assertThat(finished.evaluationCount, lessThanOrEqualTo(2));
+    }
+    
+    @Test(timeout=250)
+    public void wakesThreadsWaitingForOtherStatePredicatesWhenAMockObjectIsInvoked() throws InterruptedException {
+        final AtomicInteger invocationCount = new AtomicInteger();
+        
+        mockery.checking(new Expectations() {{
+            allowing(mockObject).action(); will(new CustomAction("count invocations") {
+                public Object invoke(Invocation invocation) {
+                    invocationCount.incrementAndGet();
+                    return null;
+                }
+            });
+        }});
+        
+        Thread background = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    mockObject.action();
+                }
+            }
+        };
+        background.start();
+        
+        synchroniser.waitUntil(new StatePredicate() {
+            public boolean isActive() {
+                return invocationCount.get() == 10;
+            }
+            public void describeTo(Description description) {
+                description.appendText("ten invocations");
+            }
+        }, 200);
+        background.join();
+    }
+    
+    private static class CountingPredicate implements StateMachinePredicate {
+        private final StateMachinePredicate predicate;
+        private final CountDownLatch firstEvaluation;
+        public int evaluationCount = 0;
+        
+        public CountingPredicate(StatePredicate predicate, CountDownLatch firstEvaluation) {
+            this.predicate = (StateMachinePredicate)predicate;
+            this.firstEvaluation = firstEvaluation;
+        }
+        
+        public boolean isActive() {
+            evaluationCount++;
+            firstEvaluation.countDown();
+            return predicate.isActive();
+        }
+        
+        public StateMachine stateMachine() {
+            return predicate.stateMachine();
+        }
+        
+        public void describeTo(Description description) {
+            predicate.describeTo(description);
+        }
+    }
+    
     @After
     public void cleanUp() {
         blitzer.shutdown();
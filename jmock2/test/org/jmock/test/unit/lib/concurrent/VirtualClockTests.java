@@ -0,0 +1,77 @@
+package org.jmock.test.unit.lib.concurrent;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit3.MockObjectTestCase;
+import org.jmock.lib.concurrent.Blitzer;
+import org.jmock.lib.concurrent.VirtualClock;
+
+public class VirtualClockTests extends MockObjectTestCase {
+    public interface TimeSource {
+        long nanoTime();
+        long currentTimeMillis();
+        Date currentDate();
+    }
+    
+    VirtualClock clock = new VirtualClock(1000L);
+    TimeSource timeSource = mock(TimeSource.class);
+    
+    public void testStartsAtTheGivenTime() {
+        assertThat(clock.nanoTime(), equalTo(0L));
+        assertThat(clock.currentTimeMillis(), equalTo(1000L));
+        assertThat(clock.currentDate(), equalTo(new Date(1000L)));
+    }
+    
+    public void testMovesForwardWhenAdvanced() {
+        clock.advance(3, TimeUnit.SECONDS);
+        clock.advance(500, TimeUnit.MICROSECONDS);
+        
+        assertThat(clock.nanoTime(), equalTo(3000500000L));
+        assertThat(clock.currentTimeMillis(), equalTo(4000L));
+    }
+    
+    public void testCannotBeMovedBackwards() {
+        try {
+            clock.advance(-1, TimeUnit.SECONDS);
+            fail("should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {}
+    }
+    
+    public void testCanBeAdvancedByManyThreadsAtOnce() throws InterruptedException {
+        Blitzer blitzer = new Blitzer(10000, 4);
+        try {
+            blitzer.blitz(new Runnable() {
+                public void run() {
+                    clock.advance(1, TimeUnit.NANOSECONDS);
+                }
+            });
+        }
+        finally {
+            blitzer.shutdown();
+        }
+        
+        assertThat(clock.nanoTime(), equalTo(10000L));
+    }
+    
+    public void testProvidesActionsThatReturnTheTimeWhenInvoked() {
+        checking(new Expectations() {{
+            allowing (timeSource).nanoTime(); will(clock.returnNanoTime());
+            allowing (timeSource).currentTimeMillis(); will(clock.returnCurrentTimeMillis());
+            allowing (timeSource).currentDate(); will(clock.returnCurrentDate());
+        }});
+        
+        assertThat(timeSource.nanoTime(), equalTo(0L));
+        
+        clock.advance(2, TimeUnit.SECONDS);
+        
+        assertThat(timeSource.nanoTime(), equalTo(2000000000L));
+        assertThat(timeSource.currentTimeMillis(), equalTo(3000L));
+        assertThat(timeSource.currentDate(), equalTo(new Date(3000L)));
+    }
+}
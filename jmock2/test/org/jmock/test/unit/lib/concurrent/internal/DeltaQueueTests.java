@@ -1,5 +1,9 @@
 package org.jmock.test.unit.lib.concurrent.internal;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.jmock.lib.concurrent.internal.DeltaQueue;
 
 import junit.framework.TestCase;
@@ -167,4 +171,98 @@ public class DeltaQueueTests extends TestCase {
         
         assertFalse(deltaQueue.remove(elementC));
     }
+    
+    public void testCanRemoveAnElementThatHasBeenAddedMoreThanOnceOneAtATimeInScheduledOrder() {
+        deltaQueue.add(3L, elementA);
+        deltaQueue.add(1L, elementA);
+        deltaQueue.add(2L, elementB);
+        
+        assertTrue(deltaQueue.remove(elementA));
+        assertEquals("DeltaQueue[+2: b, +1: a]", deltaQueue.toString());
+        
+        assertTrue(deltaQueue.remove(elementA));
+        assertFalse(deltaQueue.remove(elementA));
+        assertEquals("DeltaQueue[+2: b]", deltaQueue.toString());
+    }
+    
+    public void testReportsDelaysRelativeToTheTimeTickedSoFar() {
+        deltaQueue.add(10L, elementA);
+        deltaQueue.tick(4L);
+        deltaQueue.add(10L, elementB);
+        
+        assertEquals("DeltaQueue[+6: a, +4: b]", deltaQueue.toString());
+    }
+    
+    public void testDoesNotOverflowWhenElementsHaveVeryLongDelays() {
+        deltaQueue.tick(10L);
+        deltaQueue.add(Long.MAX_VALUE, elementB);
+        deltaQueue.add(1L, elementA);
+        
+        assertSame(elementA, deltaQueue.next());
+        deltaQueue.tick(Long.MAX_VALUE);
+        assertSame(elementA, deltaQueue.pop());
+        deltaQueue.tick(Long.MAX_VALUE);
+        assertSame(elementB, deltaQueue.pop());
+    }
+    
+    public void testKeepsManyElementsInScheduledOrderAsTheyAreAddedAndRemoved() {
+        int elementCount = 1000;
+        List<Integer> expectedOrder = new ArrayList<Integer>();
+        DeltaQueue<Integer> queue = new DeltaQueue<Integer>();
+        Random random = new Random(0);
+        
+        Integer[] elements = new Integer[elementCount];
+        long[] delays = new long[elementCount];
+        for (int i = 0; i < elementCount; i++) {
+            elements[i] = new Integer(i);
+            delays[i] = random.nextInt(50);
+            queue.add(delays[i], elements[i]);
+        }
+        for (int i = 0; i < elementCount; i += 3) {
+            assertTrue(queue.remove(elements[i]));
+        }
+        
+        for (long delay = 0; delay < 50; delay++) {
+            for (int i = 0; i < elementCount; i++) {
+                if (i % 3 != 0 && delays[i] == delay) {
+                    expectedOrder.add(elements[i]);
+                }
+            }
+        }
+        
+        List<Integer> actualOrder = new ArrayList<Integer>();
+        while (queue.isNotEmpty()) {
+            queue.tick(queue.delay());
+            actualOrder.add(queue.pop());
+        }
+        
+        assertEquals(expectedOrder, actualOrder);
+    }
+    
+    public void testElementsAddedWithANegativeDelayAreDueImmediately() {
+        deltaQueue.add(5L, elementA);
+        deltaQueue.tick(2L);
+        deltaQueue.add(-10L, elementB);
+        
+        assertSame("next", elementB, deltaQueue.next());
+        assertEquals("delay", 0L, deltaQueue.delay());
+        assertEquals("now", 2L, deltaQueue.now());
+    }
+    
+    public void testTimeNeverMovesBackwards() {
+        deltaQueue.tick(10L);
+        deltaQueue.add(-5L, elementA);
+        deltaQueue.add(3L, elementB);
+        
+        assertEquals(1L, deltaQueue.tick(1L));
+        assertEquals(10L, deltaQueue.now());
+        assertSame(elementA, deltaQueue.pop());
+        
+        assertEquals(0L, deltaQueue.tick(-4L));
+        assertEquals(10L, deltaQueue.now());
+        
+        assertEquals(0L, deltaQueue.tick(3L));
+        assertEquals(13L, deltaQueue.now());
+        assertSame(elementB, deltaQueue.pop());
+    }
 }
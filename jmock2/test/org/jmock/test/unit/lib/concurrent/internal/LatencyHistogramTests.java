@@ -0,0 +1,82 @@
+package org.jmock.test.unit.lib.concurrent.internal;
+
+import junit.framework.TestCase;
+
+import org.jmock.lib.concurrent.internal.LatencyHistogram;
+
+
+public class LatencyHistogramTests extends TestCase {
+    LatencyHistogram histogram = new LatencyHistogram();
+    
+    public void testReportsZeroForAllPercentilesWhenEmpty() {
+        assertEquals("count", 0, histogram.count());
+        assertEquals("p50", 0, histogram.percentile(50));
+        assertEquals("p99", 0, histogram.percentile(99));
+    }
+    
+    public void testCountsSmallLatenciesExactly() {
+        for (long latency = 0; latency < 16; latency++) {
+            histogram.record(latency);
+        }
+        
+        assertEquals("count", 16, histogram.count());
+        assertEquals("p50", 7, histogram.percentile(50));
+        assertEquals("p100", 15, histogram.percentile(100));
+    }
+    
+    public void testReportsLargeLatenciesRoundedUpByAtMostOneSixteenth() {
+        long[] latencies = {17, 100, 1000, 123456, 987654321L, Long.MAX_VALUE};
+        
+        for (long latency : latencies) {
+            LatencyHistogram h = new LatencyHistogram();
+            h.record(latency);
+            
+            long reported = h.percentile(50);
+            assertTrue("should not report less than " + latency + ", reported " + reported, 
+                       reported >= latency);
+            assertTrue("should report within 1/16th of " + latency + ", reported " + reported, 
+                       reported - latency <= latency/16);
+        }
+    }
+    
+    public void testReportsPercentilesOfRecordedLatencies() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        
+        assertWithinOneSixteenth("p50", 500000, histogram.percentile(50));
+        assertWithinOneSixteenth("p99", 990000, histogram.percentile(99));
+        assertWithinOneSixteenth("p99.9", 999000, histogram.percentile(99.9));
+    }
+    
+    public void testCanAddTheCountsOfAnotherHistogram() {
+        LatencyHistogram other = new LatencyHistogram();
+        histogram.record(10);
+        other.record(10);
+        other.record(1000);
+        
+        histogram.add(other);
+        
+        assertEquals("count", 3, histogram.count());
+        assertEquals("p50", 10, histogram.percentile(50));
+    }
+    
+    public void testRecordsNegativeLatenciesAsZero() {
+        histogram.record(-5);
+        
+        assertEquals("p50", 0, histogram.percentile(50));
+    }
+    
+    public void testRejectsPercentilesOutsideZeroToOneHundred() {
+        try {
+            histogram.percentile(100.1);
+            fail("should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {}
+    }
+    
+    private void assertWithinOneSixteenth(String message, long expected, long actual) {
+        assertTrue(message + ": expected about " + expected + " but was " + actual,
+                   actual >= expected && actual - expected <= expected/16);
+    }
+}
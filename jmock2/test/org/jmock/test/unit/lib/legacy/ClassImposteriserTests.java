@@ -100,6 +100,22 @@ public class ClassImposteriserTests extends TestCase {
         assertEquals("result", imposter.foo());
     }
     
+    public void testReusesProxyClassForTheSameImposterisedTypes() {
+        AnInnerClass imposter1 = imposteriser.imposterise(action, AnInnerClass.class, AnInterface.class);
+        AnInnerClass imposter2 = imposteriser.imposterise(action, AnInnerClass.class, AnInterface.class);
+        
+        assertSame("proxy class", imposter1.getClass(), imposter2.getClass());
+        assertNotSame("imposter", imposter1, imposter2);
+    }
+    
+    public void testGeneratesDifferentProxyClassesForDifferentAncilliaryTypes() {
+        AnInnerClass imposter = imposteriser.imposterise(action, AnInnerClass.class);
+        AnInnerClass imposterWithInterface = imposteriser.imposterise(action, AnInnerClass.class, AnInterface.class);
+        
+        assertNotSame("proxy class", imposter.getClass(), imposterWithInterface.getClass());
+        assertTrue("should implement ancilliary type", imposterWithInterface instanceof AnInterface);
+    }
+    
     public void testCanImposteriseAClassInASignedJarFile() throws Exception {
         File jarFile = new File("build/testdata/signed.jar");
         
@@ -1,11 +1,18 @@
 package org.jmock.test.unit.lib.script;
 
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.jmock.lib.script.ScriptedAction.perform;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.TestCase;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.concurrent.Blitzer;
+import org.jmock.lib.script.ScriptedAction;
 import org.junit.Assert;
 
 
@@ -92,4 +99,88 @@ public class ScriptedActionTests extends TestCase {
         
         context.assertIsSatisfied();
     }
+
+    public void testReturnsValueOfScript() throws Throwable {
+        ScriptedAction action = perform("$0 + 1");
+        
+        assertEquals(2, action.invoke(invocationWith(1)));
+        assertEquals(3, action.invoke(invocationWith(2)));
+    }
+    
+    public void testReturnsValueOfReturnStatement() throws Throwable {
+        ScriptedAction action = perform("int n = $0 * 2; return n; n = 0;");
+        
+        assertEquals(6, action.invoke(invocationWith(3)));
+    }
+    
+    public void testVariablesDeclaredByScriptAreLocalToEachInvocation() throws Throwable {
+        ScriptedAction action = perform("int n = $0; n");
+        
+        assertEquals(1, action.invoke(invocationWith(1)));
+        assertEquals(2, action.invoke(invocationWith(2)));
+    }
+    
+    public void testReportsSyntaxErrorsWhenCreated() {
+        try {
+            perform("$0.callback(");
+            fail("should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {
+            assertEquals("could not parse script", expected.getMessage());
+        }
+    }
+    
+    public void testReportsSyntaxErrorsWhenExpectationsAreDefinedRatherThanWhenInvoked() throws Exception {
+        try {
+            context.checking(new Expectations() {{
+                oneOf (callout).doSomethingWith(callback); will(perform("$0.callback("));
+            }});
+            fail("should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {}
+    }
+    
+    public void testCanBeInvokedConcurrentlyWithDifferentParameters() throws Exception {
+        final ScriptedAction action = perform("$0.callbackWith($0)");
+        final AtomicInteger mismatchCount = new AtomicInteger();
+        Blitzer blitzer = new Blitzer(2000, 4);
+        
+        try {
+            blitzer.blitz(new Runnable() {
+                public void run() {
+                    SelfCheckingCallback callback = new SelfCheckingCallback();
+                    try {
+                        action.invoke(invocationWith(callback));
+                    }
+                    catch (Throwable t) {
+                        mismatchCount.incrementAndGet();
+                    }
+                    if (!callback.receivedItself) {
+                        mismatchCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+        finally {
+            blitzer.shutdown();
+        }
+        
+        Assert.assertThat(mismatchCount.get(), equalTo(0));
+    }
+    
+    private Invocation invocationWith(Object parameter) {
+        return new Invocation(callout, Callout.class.getMethods()[0], parameter);
+    }
+    
+    public static class SelfCheckingCallback implements Callback {
+        public boolean receivedItself = false;
+        
+        public void callback() {}
+        public void throwException() {}
+        public void callbackWith(Object o1, Object o2) {}
+        
+        public void callbackWith(Object o) {
+            receivedItself = (o == this);
+        }
+    }
 }